@@ -0,0 +1,23 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with GC profiler, which reports also allocated bytes per operation. Accepts the same arguments
+ * as the JMH runner, e.g. {@code -p keys=10000 -p locales=40 Export}.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+            .parent(options)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
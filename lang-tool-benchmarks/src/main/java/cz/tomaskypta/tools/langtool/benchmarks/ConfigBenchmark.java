@@ -0,0 +1,77 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import cz.tomaskypta.tools.langtool.importing.ImportConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading of import configuration files and lookup of key transformations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigBenchmark {
+
+    @Param({"1000"})
+    public int keys;
+
+    private SyntheticProject mProject;
+    private String mIgnoreList;
+    private String mEscaping;
+    private String mTransformations;
+    private String mMixedContent;
+    private ImportConfig mConfig;
+
+    @Setup
+    public void setUp() throws IOException {
+        mProject = new SyntheticProject(keys, 0, false, false);
+        mIgnoreList = mProject.writeKeyList("ignored.xlsx", 13).getPath();
+        mEscaping = mProject.writeKeyList("escaping.xlsx", 20).getPath();
+        mTransformations = mProject.writeTransformations("transformations.xlsx").getPath();
+        mMixedContent = mProject.writeKeyList("mixed.xlsx", 7).getPath();
+        mConfig = load();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mProject.delete();
+    }
+
+    @Benchmark
+    public ImportConfig loadConfig() {
+        return load();
+    }
+
+    @Benchmark
+    public void keyTransformations(Blackhole blackhole) {
+        for (int i = 0; i < keys; i++) {
+            blackhole.consume(mConfig.getKeyTransformation(SyntheticProject.key(i)));
+        }
+    }
+
+    private ImportConfig load() {
+        ImportConfig config = new ImportConfig();
+        config.setIgnoredList(mIgnoreList);
+        config.setEscapingConfig(mEscaping);
+        config.setTransformations(mTransformations);
+        config.setMixedContent(mMixedContent);
+        return config;
+    }
+}
@@ -0,0 +1,66 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import cz.tomaskypta.tools.langtool.util.EscapingUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Escaping of imported values, a share of them contains quotes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EscapingBenchmark {
+
+    @Param({"1000"})
+    public int values;
+
+    /**
+     * Percentage of values with quotes.
+     */
+    @Param({"0", "25", "100"})
+    public int quoted;
+
+    private String[] mValues;
+
+    @Setup
+    public void setUp() {
+        mValues = new String[values];
+        for (int i = 0; i < values; i++) {
+            if (i * 100 < quoted * values) {
+                mValues[i] = "\\\"Value 'quoted' " + i + " with \\\"escaped\\\" quotes\\\"";
+            } else {
+                mValues[i] = "Value " + i + " with %1$s format and @ and ? characters";
+            }
+        }
+    }
+
+    @Benchmark
+    public void escapeWithBackslash(Blackhole blackhole) {
+        for (String value : mValues) {
+            blackhole.consume(EscapingUtils.escapeWithBackslash(value));
+        }
+    }
+
+    @Benchmark
+    public void unescapeAndEscapeWithQuotes(Blackhole blackhole) {
+        for (String value : mValues) {
+            blackhole.consume(EscapingUtils.escapeWithQuotes(EscapingUtils.unescapeQuotes(value)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import cz.tomaskypta.tools.langtool.exporting.ExportConfig;
+import cz.tomaskypta.tools.langtool.exporting.ToolExport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Export of the whole project into a new workbook.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"1000"})
+    public int keys;
+
+    @Param({"10"})
+    public int locales;
+
+    @Param({"true"})
+    public boolean plurals;
+
+    @Param({"true"})
+    public boolean arrays;
+
+    @Param({"xls", "xlsx", "csv", "tsv", "xlf"})
+    public String format;
+
+    @Param({"false"})
+    public boolean streaming;
+
+    @Param({"1"})
+    public int threads;
+
+    private SyntheticProject mProject;
+    private ExportConfig mConfig;
+
+    @Setup
+    public void setUp() throws IOException {
+        mProject = new SyntheticProject(keys, locales, plurals, arrays);
+        mConfig = mProject.exportConfig("exported." + format);
+        mConfig.streaming = streaming;
+        mConfig.threads = threads;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mProject.delete();
+    }
+
+    @Benchmark
+    public void export() throws Exception {
+        ToolExport.run(SyntheticProject.NULL_OUT, new ExportConfig(mConfig));
+    }
+}
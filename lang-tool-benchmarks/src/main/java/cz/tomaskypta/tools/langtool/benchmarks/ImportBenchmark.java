@@ -0,0 +1,90 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import cz.tomaskypta.tools.langtool.importing.ImportConfig;
+import cz.tomaskypta.tools.langtool.importing.ToolImport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Import of previously exported project. Resources are written into {@code out} directory in the working directory,
+ * which is removed afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({"1000"})
+    public int keys;
+
+    @Param({"10"})
+    public int locales;
+
+    @Param({"true"})
+    public boolean plurals;
+
+    @Param({"true"})
+    public boolean arrays;
+
+    @Param({"xls", "xlsx", "csv", "tsv"})
+    public String format;
+
+    /**
+     * Uses escaping, transformations and mixed content configuration.
+     */
+    @Param({"true"})
+    public boolean configured;
+
+    @Param({"1"})
+    public int threads;
+
+    private SyntheticProject mProject;
+    private ImportConfig mConfig;
+    private PrintStream mOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        mProject = new SyntheticProject(keys, locales, plurals, arrays);
+        mConfig = new ImportConfig();
+        mConfig.inputFile = mProject.export("input." + format).getPath();
+        mConfig.outputDirName = mProject.getId();
+        mConfig.threads = threads;
+        if (configured) {
+            mConfig.setEscapingConfig(mProject.writeKeyList("escaping.xlsx", 20).getPath());
+            mConfig.setTransformations(mProject.writeTransformations("transformations.xlsx").getPath());
+            mConfig.setMixedContent(mProject.writeKeyList("mixed.xlsx", 7).getPath());
+        }
+        mOut = System.out;
+        System.setOut(SyntheticProject.NULL_OUT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(mOut);
+        SyntheticProject.deleteRecursively(new File("out", mConfig.outputDirName));
+        mProject.delete();
+    }
+
+    @Benchmark
+    public void importing() throws Exception {
+        ToolImport.run(new ImportConfig(mConfig));
+    }
+}
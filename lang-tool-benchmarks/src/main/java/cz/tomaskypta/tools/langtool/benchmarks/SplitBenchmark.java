@@ -0,0 +1,91 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import cz.tomaskypta.tools.langtool.importing.splitting.SplittingConfig;
+import cz.tomaskypta.tools.langtool.importing.splitting.ToolImportSplitter;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Import of previously exported project split into several resource files. Split files and resources are written
+ * into {@code intermediate} and {@code out} directories in the working directory, which are removed afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SplitBenchmark {
+
+    @Param({"1000"})
+    public int keys;
+
+    @Param({"10"})
+    public int locales;
+
+    @Param({"true"})
+    public boolean plurals;
+
+    @Param({"true"})
+    public boolean arrays;
+
+    @Param({"4"})
+    public int parts;
+
+    private SyntheticProject mProject;
+    private SplittingConfig mConfig;
+    private String mPrefix;
+    private PrintStream mOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        mProject = new SyntheticProject(keys, locales, plurals, arrays);
+        mConfig = new SplittingConfig();
+        File input = mProject.export("input.xlsx");
+        mConfig.inputFile = input.getPath();
+        int rows;
+        Workbook wb = WorkbookFactory.create(input, null, true);
+        try {
+            rows = wb.getSheetAt(0).getLastRowNum() + 1;
+        } finally {
+            wb.close();
+        }
+        mPrefix = mProject.getId() + "_";
+        mConfig.splittingConfigFile = mProject.writeSplittingConfig("splitting.xlsx", mPrefix, parts, rows)
+            .getPath();
+        mOut = System.out;
+        System.setOut(SyntheticProject.NULL_OUT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(mOut);
+        for (int i = 0; i < parts; i++) {
+            new File("intermediate", mPrefix + i + ".xlsx").delete();
+            SyntheticProject.deleteRecursively(new File("out", mPrefix + i));
+        }
+        mProject.delete();
+    }
+
+    @Benchmark
+    public void split() throws Exception {
+        ToolImportSplitter.run(new SplittingConfig(mConfig));
+    }
+}
@@ -0,0 +1,236 @@
+package cz.tomaskypta.tools.langtool.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import cz.tomaskypta.tools.langtool.exporting.ExportConfig;
+import cz.tomaskypta.tools.langtool.exporting.ToolExport;
+import org.apache.poi.hssf.usermodel.HSSFWorkbookFactory;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
+
+/**
+ * Generated Android project with a given number of keys and locales, together with the exported workbook and
+ * configuration files used by the benchmarks.
+ * <p>
+ * Every tenth key is a plurals and every tenth key, shifted by five, is a string array, when enabled. Some of the
+ * strings contain quotes or html markup, every twentieth string is missing in the locales.
+ */
+class SyntheticProject {
+
+    static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private static final String[] QUANTITIES = {"one", "few", "other"};
+
+    private final File mRoot;
+    private final File mDir;
+    private final int mKeys;
+    private final List<String> mLocales;
+    private final boolean mPlurals;
+    private final boolean mArrays;
+
+    static {
+        WorkbookFactory.addProvider(new HSSFWorkbookFactory());
+        WorkbookFactory.addProvider(new XSSFWorkbookFactory());
+    }
+
+    /**
+     * Generates the resources of the project into a new temporary directory.
+     */
+    SyntheticProject(int keys, int locales, boolean plurals, boolean arrays) throws IOException {
+        mRoot = Files.createTempDirectory("langtool-benchmark").toFile();
+        // the project name is used as sheet name, which is limited to 31 chars
+        mDir = new File(mRoot, "app");
+        mKeys = keys;
+        mLocales = new ArrayList<String>(locales);
+        for (int i = 0; i < locales; i++) {
+            mLocales.add(String.valueOf((char) ('a' + i / 26 % 26)) + (char) ('a' + i % 26));
+        }
+        mPlurals = plurals;
+        mArrays = arrays;
+        writeStrings(new File(mDir, "res/values"), null);
+        for (String locale : mLocales) {
+            writeStrings(new File(mDir, "res/values-" + locale), locale);
+        }
+    }
+
+    File getDir() {
+        return mDir;
+    }
+
+    /**
+     * @return unique name of the project, usable for files created outside of the project directory
+     */
+    String getId() {
+        return mRoot.getName();
+    }
+
+    /**
+     * Configuration exporting the project into a file in the project directory.
+     */
+    ExportConfig exportConfig(String fileName) {
+        ExportConfig config = new ExportConfig();
+        config.inputExportProject = mDir.getPath();
+        config.outputFile = new File(mDir, fileName).getPath();
+        return config;
+    }
+
+    /**
+     * Exports the project into a file in the project directory, the file is used as input of import.
+     */
+    File export(String fileName) throws Exception {
+        ExportConfig config = exportConfig(fileName);
+        ToolExport.run(NULL_OUT, config);
+        return new File(config.outputFile);
+    }
+
+    /**
+     * Writes file with keys in the first column, every n-th key of the default language is written.
+     */
+    File writeKeyList(String fileName, int step) throws IOException {
+        Workbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        int rowNum = 0;
+        for (int i = 0; i < mKeys; i += step) {
+            sheet.createRow(rowNum++).createCell(0).setCellValue(key(i));
+        }
+        return write(wb, fileName);
+    }
+
+    /**
+     * Writes transformations with a rule for a single key, a glob rule and a language specific regex rule.
+     */
+    File writeTransformations(String fileName) throws IOException {
+        Workbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        addTransformation(sheet.createRow(0), key(1), "Value", "Text", null);
+        addTransformation(sheet.createRow(1), "string_1*", "\\s+$", "", null);
+        addTransformation(sheet.createRow(2), "regex:string_[0-9]*5", "^", "> ",
+            mLocales.isEmpty() ? "default" : mLocales.get(0));
+        return write(wb, fileName);
+    }
+
+    /**
+     * Writes splitting config dividing the rows of exported file into the given number of files.
+     */
+    File writeSplittingConfig(String fileName, String prefix, int parts, int rows) throws IOException {
+        Workbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        for (int i = 0; i < parts; i++) {
+            Row row = sheet.createRow(i);
+            // rows are numbered from 1, the first one is the title
+            row.createCell(0).setCellValue(2 + i * (rows - 1) / parts);
+            row.createCell(1).setCellValue(prefix + i + ".xlsx");
+            row.createCell(2).setCellValue("strings_" + i + ".xml");
+        }
+        return write(wb, fileName);
+    }
+
+    /**
+     * Deletes the project with all generated files.
+     */
+    void delete() throws IOException {
+        deleteRecursively(mRoot);
+    }
+
+    static void deleteRecursively(File dir) throws IOException {
+        if (!dir.exists()) {
+            return;
+        }
+        Stream<Path> paths = Files.walk(dir.toPath());
+        try {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } finally {
+            paths.close();
+        }
+    }
+
+    static String key(int index) {
+        return "string_" + index;
+    }
+
+    private void addTransformation(Row row, String selector, String regex, String replacement, String languages) {
+        row.createCell(0).setCellValue(selector);
+        row.createCell(1).setCellValue(regex);
+        row.createCell(2).setCellValue(replacement);
+        if (languages != null) {
+            row.createCell(3).setCellValue(languages);
+        }
+    }
+
+    private File write(Workbook wb, String fileName) throws IOException {
+        File file = new File(mDir, fileName);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            wb.write(out);
+        } finally {
+            out.close();
+            wb.close();
+        }
+        return file;
+    }
+
+    private void writeStrings(File dir, String locale) throws IOException {
+        dir.mkdirs();
+        String prefix = locale == null ? "" : "[" + locale + "] ";
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(dir, "strings.xml")),
+            StandardCharsets.UTF_8));
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n");
+            for (int i = 0; i < mKeys; i++) {
+                if (i % 50 == 0) {
+                    out.write("    <!-- Section " + i / 50 + " -->\n");
+                }
+                if (mPlurals && i % 10 == 0) {
+                    out.write("    <plurals name=\"plurals_" + i + "\">\n");
+                    for (String quantity : QUANTITIES) {
+                        out.write("        <item quantity=\"" + quantity + "\">" + prefix + "%d items " + quantity
+                            + "</item>\n");
+                    }
+                    out.write("    </plurals>\n");
+                } else if (mArrays && i % 10 == 5) {
+                    out.write("    <string-array name=\"array_" + i + "\">\n");
+                    for (int item = 0; item < 3; item++) {
+                        out.write("        <item>" + prefix + "Item " + item + "</item>\n");
+                    }
+                    out.write("    </string-array>\n");
+                } else if (locale == null || i % 20 != 1) {
+                    out.write("    <string name=\"" + key(i) + "\">" + prefix + value(i) + "</string>\n");
+                }
+            }
+            out.write("</resources>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String value(int index) {
+        switch (index % 4) {
+            case 1:
+                return "Value \\'" + index + "\\' with quotes";
+            case 2:
+                return "Value with &lt;b&gt;markup&lt;/b&gt; " + index;
+            case 3:
+                return "Value with format %1$s of " + index + " ";
+            default:
+                return "Value " + index;
+        }
+    }
+}
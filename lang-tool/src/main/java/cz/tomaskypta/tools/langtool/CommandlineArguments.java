@@ -1,6 +1,7 @@
 package cz.tomaskypta.tools.langtool;
 
 import com.beust.jcommander.Parameter;
+import cz.tomaskypta.tools.langtool.serving.ToolServer;
 
 /**
 * Created by Tomáš Kypta on 03.10.14.
@@ -9,17 +10,41 @@ public class CommandlineArguments {
 
     @Parameter(names = "-e", description = "Export project dir")
     String exportProject;
-    @Parameter(names = "-o", description = "Output file")
+    @Parameter(names = "-o", description = "Output file, xls, xlsx, csv, tsv or xlf")
     String outputFile;
     @Parameter(names = "--additional-resources", description = "Colon separated list of additional resource files" +
         " to export")
     String additionalResources;
-    @Parameter(names = "-i", description = "Import xls file")
+    @Parameter(names = "--checkpoint", description = "Write the exported file after every N languages, 0 writes it " +
+        "only once at the end")
+    int checkpointInterval;
+    @Parameter(names = "--streaming", description = "Export xlsx file with streaming writer keeping only a window of " +
+        "rows in memory")
+    boolean streaming;
+    @Parameter(names = "--streaming-window", description = "Number of rows kept in memory by streaming export")
+    int streamingWindowSize = 100;
+    @Parameter(names = "--incremental", description = "Update existing exported file, only changed languages are " +
+        "exported again")
+    boolean incremental;
+    @Parameter(names = "--all-modules", description = "Export resource directories of all modules found in the " +
+        "project, each into its own sheet")
+    boolean allModules;
+    @Parameter(names = "--watch", description = "Keep the exported file up to date, export changed languages again " +
+        "whenever resource files change")
+    boolean watch;
+    @Parameter(names = "--cache", description = "Directory of persistent cache of parsed resource files")
+    String cacheDir;
+    @Parameter(names = "--cache-size", description = "Maximum size of the cache in MB, the least recently used files " +
+        "are evicted")
+    int cacheSize = 64;
+    @Parameter(names = "-i", description = "Import xls, xlsx, csv, tsv or xlf file")
     String importFile;
     @Parameter(names = "-m", description = "Mapping file for rewriting resource qualifiers")
     String mappingFile;
     @Parameter(names = "-s", description = "Splitting config file for import")
     String splittingConfigFile;
+    @Parameter(names = "--keep-intermediate", description = "Write split parts into intermediate directory")
+    boolean keepIntermediate;
 //        @Parameter(names = "--escapeAll", description = "Escape strings")
 //        boolean escapeAll;
     @Parameter(names = "--escaping-config", description = "Escaping config for specifing keys to escape when " +
@@ -37,6 +62,19 @@ public class CommandlineArguments {
     String extraTransformations;
     @Parameter(names = "--mixed-content", description = "List of mixed content keys.")
     String mixedContent;
+    @Parameter(names = "--threads", description = "Number of threads processing languages concurrently, 0 uses all " +
+        "available processors.")
+    int threads = 1;
+    @Parameter(names = "--report", description = "JSON file with metrics of the run")
+    String reportFile;
+    @Parameter(names = "--batch", description = "Manifest file with export, import and split jobs run in a single " +
+        "process, one job per line")
+    String batchFile;
+    @Parameter(names = "--serve", description = "Keep running and accept export, import and split jobs as JSON " +
+        "requests on a localhost HTTP port")
+    boolean serve;
+    @Parameter(names = "--port", description = "Port of the server")
+    int port = ToolServer.DEFAULT_PORT;
 
     public String getExportProject() {
         return exportProject;
@@ -50,6 +88,38 @@ public class CommandlineArguments {
         return additionalResources;
     }
 
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getStreamingWindowSize() {
+        return streamingWindowSize;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isAllModules() {
+        return allModules;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
     public String getImportFile() {
         return importFile;
     }
@@ -62,6 +132,10 @@ public class CommandlineArguments {
         return splittingConfigFile;
     }
 
+    public boolean isKeepIntermediate() {
+        return keepIntermediate;
+    }
+
     public String getEscapingConfigFile() {
         return escapingConfigFile;
     }
@@ -81,4 +155,24 @@ public class CommandlineArguments {
     public String getMixedContent() {
         return mixedContent;
     }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public String getBatchFile() {
+        return batchFile;
+    }
+
+    public boolean isServe() {
+        return serve;
+    }
+
+    public int getPort() {
+        return port;
+    }
 }
@@ -1,18 +1,13 @@
 package cz.tomaskypta.tools.langtool;
 
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
-
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
+import cz.tomaskypta.tools.langtool.util.ConfigSheets;
+
 /**
  * Created by tomas on 04.10.14.
  */
@@ -20,19 +15,32 @@ public class CommonConfig {
 
     public String ignoreListFile;
     private Set<String> ignoredSet;
+    public int threads;
+    public String reportFile;
+    /**
+     * Directory of the default output files, like {@code out} directory of import, {@code null} for the current
+     * directory. Paths given in the config are not resolved against it.
+     */
+    public File workingDir;
 
     public CommonConfig() {
         this.ignoredSet = new HashSet<String>();
+        this.threads = 1;
     }
 
     public CommonConfig(CommonConfig other) {
         this.ignoreListFile = other.ignoreListFile;
         this.ignoredSet = new HashSet<String>(other.ignoredSet);
+        this.threads = other.threads;
+        this.reportFile = other.reportFile;
+        this.workingDir = other.workingDir;
     }
 
     public CommonConfig(CommandlineArguments args) {
         this();
         this.setIgnoredList(args.getIgnoreListFile());
+        this.threads = args.getThreads() > 0 ? args.getThreads() : Runtime.getRuntime().availableProcessors();
+        this.reportFile = args.getReportFile();
     }
 
     public Boolean isIgnoredKey(String key) {
@@ -47,15 +55,12 @@ public class CommonConfig {
         ignoredSet.clear();
 
         try {
-            Workbook wbEscaping = WorkbookFactory.create(new FileInputStream(new File(this.ignoreListFile)));
-            Sheet sheetEscaping = wbEscaping.getSheetAt(0);
-            Iterator<Row> it = sheetEscaping.rowIterator();
-            while (it.hasNext()) {
-                Row row = it.next();
-                if (row == null || row.getCell(0) == null) {
+            for (String[] row : ConfigSheets.read(ignoredListFile)) {
+                String key = ConfigSheets.cell(row, 0);
+                if (key == null) {
                     return;
                 }
-                ignoredSet.add(row.getCell(0).getStringCellValue());
+                ignoredSet.add(key);
             }
         } catch (FileNotFoundException e) {
 
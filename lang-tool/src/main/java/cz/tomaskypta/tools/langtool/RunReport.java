@@ -0,0 +1,293 @@
+package cz.tomaskypta.tools.langtool;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cz.tomaskypta.tools.langtool.util.Json;
+
+/**
+ * Metrics of a single export or import run: wall time of its phases and languages, processed rows and cells, read and
+ * written bytes, missing keys and peak heap usage. Metrics can be recorded from more threads.
+ * <p>
+ * The report is printed as a short summary and optionally written into a JSON file, see {@link #write(File)}.
+ */
+public class RunReport {
+
+    /**
+     * Metrics of a single language.
+     */
+    public static class LangMetrics {
+        private final AtomicLong mNanos = new AtomicLong();
+        private final AtomicLong mRows = new AtomicLong();
+        private final AtomicLong mCells = new AtomicLong();
+        private final List<String> mMissingKeys = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> mUnknownKeys = Collections.synchronizedList(new ArrayList<String>());
+
+        public void addTime(long startNanos) {
+            mNanos.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        public void addRows(long rows) {
+            mRows.addAndGet(rows);
+        }
+
+        public void addCells(long cells) {
+            mCells.addAndGet(cells);
+        }
+
+        /**
+         * Keys of the default language missing in the language.
+         */
+        public void addMissingKeys(Collection<String> keys) {
+            mMissingKeys.addAll(keys);
+        }
+
+        public void addMissingKey(String key) {
+            mMissingKeys.add(key);
+        }
+
+        /**
+         * Key of the language not existing in the default language.
+         */
+        public void addUnknownKey(String key) {
+            mUnknownKeys.add(key);
+        }
+
+        public int getMissingKeys() {
+            return mMissingKeys.size();
+        }
+
+        public int getUnknownKeys() {
+            return mUnknownKeys.size();
+        }
+    }
+
+    /**
+     * Whether runs share the JVM with other runs, e.g. jobs of a batch. Such runs don't report peak heap, it would be
+     * the peak of all of them.
+     */
+    private static volatile boolean sSharedHeap;
+
+    private final String mCommand;
+    private final Instant mStart = Instant.now();
+    private final long mStartNanos = System.nanoTime();
+    private final Map<String, AtomicLong> mPhases = Collections.synchronizedMap(new LinkedHashMap<String, AtomicLong>());
+    private final Map<String, LangMetrics> mLangs = new ConcurrentHashMap<String, LangMetrics>();
+    private final AtomicLong mRows = new AtomicLong();
+    private final AtomicLong mCells = new AtomicLong();
+    private final AtomicLong mBytesRead = new AtomicLong();
+    private final AtomicLong mBytesWritten = new AtomicLong();
+    private final AtomicLong mFilesWritten = new AtomicLong();
+    private final AtomicLong mFilesUnchanged = new AtomicLong();
+    private long mEndNanos;
+
+    /**
+     * @param command name of the run, e.g. {@code export}
+     */
+    public RunReport(String command) {
+        mCommand = command;
+    }
+
+    /**
+     * Adds time elapsed since the start to the phase. Phases repeated for more modules or files are summed.
+     *
+     * @param startNanos start of the phase as returned by {@link System#nanoTime()}
+     */
+    public void addPhaseTime(String phase, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        AtomicLong time;
+        synchronized (mPhases) {
+            time = mPhases.get(phase);
+            if (time == null) {
+                time = new AtomicLong();
+                mPhases.put(phase, time);
+            }
+        }
+        time.addAndGet(nanos);
+    }
+
+    public LangMetrics lang(String lang) {
+        return mLangs.computeIfAbsent(lang, l -> new LangMetrics());
+    }
+
+    public void addRows(long rows) {
+        mRows.addAndGet(rows);
+    }
+
+    public void addCells(long cells) {
+        mCells.addAndGet(cells);
+    }
+
+    public void addBytesRead(long bytes) {
+        mBytesRead.addAndGet(bytes);
+    }
+
+    public void addBytesWritten(long bytes) {
+        mBytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * @param changed {@code false} if the file was not written because its content was the same
+     */
+    public void addFile(boolean changed) {
+        (changed ? mFilesWritten : mFilesUnchanged).incrementAndGet();
+    }
+
+    /**
+     * Stops the wall time of the run.
+     */
+    public void finish() {
+        mEndNanos = System.nanoTime();
+    }
+
+    /**
+     * @param shared {@code true} while more runs share the JVM, their reports don't contain peak heap
+     */
+    public static void setSharedHeap(boolean shared) {
+        sSharedHeap = shared;
+    }
+
+    /**
+     * Prints totals of the run and missing keys of every language.
+     */
+    public void printSummary(PrintStream out) {
+        out.println();
+        out.println(String.format("%s finished in %d ms: %d rows, %d cells, %d bytes read, %d bytes written%s",
+            mCommand, getWallTimeMillis(), mRows.get(), mCells.get(), mBytesRead.get(), mBytesWritten.get(),
+            sSharedHeap ? "" : String.format(", peak heap %d MB", getPeakHeap() / (1024 * 1024))));
+        for (Map.Entry<String, Long> phase : getPhaseMillis().entrySet()) {
+            out.println(String.format("\t%s: %d ms", phase.getKey(), phase.getValue()));
+        }
+        int missing = 0;
+        int unknown = 0;
+        List<String> incomplete = new ArrayList<String>();
+        for (Map.Entry<String, LangMetrics> lang : new TreeMap<String, LangMetrics>(mLangs).entrySet()) {
+            missing += lang.getValue().getMissingKeys();
+            unknown += lang.getValue().getUnknownKeys();
+            if (lang.getValue().getMissingKeys() > 0) {
+                incomplete.add(String.format("%s (%d)", lang.getKey(), lang.getValue().getMissingKeys()));
+            }
+        }
+        if (missing > 0 || unknown > 0) {
+            out.println(String.format("Missing keys: %d, unknown keys: %d", missing, unknown));
+        }
+        if (!incomplete.isEmpty()) {
+            out.println("Languages with missing keys: " + String.join(", ", incomplete));
+        }
+    }
+
+    /**
+     * Writes the report as JSON object.
+     */
+    public void write(File file) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            Json.Writer json = new Json.Writer(out).beginObject();
+            json.field("command", mCommand);
+            json.field("start", mStart.toString());
+            json.field("wallTimeMs", getWallTimeMillis());
+            if (!sSharedHeap) {
+                json.field("peakHeapBytes", getPeakHeap());
+            }
+            json.field("rows", mRows.get());
+            json.field("cells", mCells.get());
+            json.field("bytesRead", mBytesRead.get());
+            json.field("bytesWritten", mBytesWritten.get());
+            json.field("filesWritten", mFilesWritten.get());
+            json.field("filesUnchanged", mFilesUnchanged.get());
+
+            json.name("phases").beginObject();
+            for (Map.Entry<String, Long> phase : getPhaseMillis().entrySet()) {
+                json.field(phase.getKey(), phase.getValue());
+            }
+            json.endObject();
+
+            json.name("languages").beginObject();
+            for (Map.Entry<String, LangMetrics> entry : new TreeMap<String, LangMetrics>(mLangs).entrySet()) {
+                LangMetrics lang = entry.getValue();
+                json.name(entry.getKey()).beginObject();
+                json.field("timeMs", TimeUnit.NANOSECONDS.toMillis(lang.mNanos.get()));
+                json.field("rows", lang.mRows.get());
+                json.field("cells", lang.mCells.get());
+                json.field("missingKeys", lang.getMissingKeys());
+                json.field("unknownKeys", lang.getUnknownKeys());
+                writeKeys(json.name("missing"), lang.mMissingKeys);
+                writeKeys(json.name("unknown"), lang.mUnknownKeys);
+                json.endObject();
+            }
+            json.endObject();
+            json.endObject();
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+    }
+
+    private long getWallTimeMillis() {
+        long end = mEndNanos != 0 ? mEndNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - mStartNanos);
+    }
+
+    private Map<String, Long> getPhaseMillis() {
+        Map<String, Long> phases = new LinkedHashMap<String, Long>();
+        synchronized (mPhases) {
+            for (Map.Entry<String, AtomicLong> phase : mPhases.entrySet()) {
+                phases.put(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue().get()));
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * Resets peak usage of memory pools, so that the following peak heap is the peak of the following runs.
+     */
+    public static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * @return sum of peak usages of heap memory pools since the start of JVM or the last reset
+     */
+    public static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void writeKeys(Json.Writer json, List<String> keys) throws IOException {
+        json.beginInlineArray();
+        synchronized (keys) {
+            List<String> sorted = new ArrayList<String>(keys);
+            Collections.sort(sorted);
+            for (String key : sorted) {
+                json.value(key);
+            }
+        }
+        json.endArray();
+    }
+}
@@ -11,6 +11,8 @@ import cz.tomaskypta.tools.langtool.exporting.ToolExport;
 import cz.tomaskypta.tools.langtool.importing.ToolImport;
 import cz.tomaskypta.tools.langtool.importing.splitting.SplittingConfig;
 import cz.tomaskypta.tools.langtool.importing.splitting.ToolImportSplitter;
+import cz.tomaskypta.tools.langtool.serving.ToolBatch;
+import cz.tomaskypta.tools.langtool.serving.ToolServer;
 import org.apache.poi.hssf.usermodel.HSSFWorkbookFactory;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
@@ -36,10 +38,26 @@ public class Tool {
         WorkbookFactory.addProvider(new HSSFWorkbookFactory());
         WorkbookFactory.addProvider(new XSSFWorkbookFactory());
 
+        if (parsedArgs.getBatchFile() != null) {
+            if (!ToolBatch.run(parsedArgs.getBatchFile(), parsedArgs.getThreads(), parsedArgs.getReportFile())) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (parsedArgs.isServe()) {
+            ToolServer.run(parsedArgs.getPort());
+            return;
+        }
+
         if (parsedArgs.exportProject != null) {
             // exporting
             ExportConfig config = new ExportConfig(parsedArgs);
-            ToolExport.run(config);
+            if (parsedArgs.isWatch()) {
+                ToolExport.watch(null, config);
+            } else {
+                ToolExport.run(config);
+            }
         } else if (parsedArgs.importFile != null) {
             SplittingConfig config = new SplittingConfig(parsedArgs);
 
@@ -58,8 +76,13 @@ public class Tool {
     private static void printHelp() {
         System.out.println("commands format:");
         System.out.println("\texport: -e <project dir> [-o <output file>] [--additional-resources <colon separated " +
-            "list of additional resources>]");
-        System.out.println("\timport: -i <input file> [-s <splitting config>] [-m <mapping file>] [--escaping-config " +
-            "<escaping config file>] [--unescape-before-escaping] [--ignore-list <ingored list file>]");
+            "list of additional resources>] [--checkpoint <languages>] [--streaming [--streaming-window " +
+            "<rows>]] [--incremental] [--watch] [--all-modules] [--cache <cache dir> [--cache-size <MB>]] " +
+            "[--threads <threads>] [--report <report file>]");
+        System.out.println("\timport: -i <input file> [-s <splitting config> [--keep-intermediate]] [-m <mapping " +
+            "file>] [--escaping-config <escaping config file>] [--unescape-before-escaping] [--ignore-list <ingored " +
+            "list file>] [--threads <threads>] [--report <report file>]");
+        System.out.println("\tbatch: --batch <manifest file> [--threads <threads>] [--report <report file>]");
+        System.out.println("\tserve: --serve [--port <port>]");
     }
 }
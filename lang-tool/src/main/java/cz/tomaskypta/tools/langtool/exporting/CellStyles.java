@@ -0,0 +1,149 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Cell styles of a single workbook. Every style is created once, when it's first needed, and shared by all cells of
+ * its kind. Workbooks have a limited number of styles.
+ */
+class CellStyles {
+
+    enum Kind {TITLE, COMMENT, PLURALS, KEY, TEXT, MISSED}
+
+    private final Workbook mWorkbook;
+    private final Map<Kind, CellStyle> mStyles = new EnumMap<Kind, CellStyle>(Kind.class);
+
+    CellStyles(Workbook wb) {
+        mWorkbook = wb;
+    }
+
+    /**
+     * Uses styles already existing in previously exported sheet, so that updating the file doesn't add new ones.
+     */
+    void useExisting(Sheet sheet) {
+        mStyles.put(Kind.TITLE, sheet.getRow(0).getCell(0).getCellStyle());
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            Cell cell = row == null ? null : row.getCell(1);
+            if (cell != null) {
+                mStyles.put(Kind.TEXT, cell.getCellStyle());
+                break;
+            }
+        }
+        for (int i = 0; i < mWorkbook.getNumCellStyles(); i++) {
+            CellStyle style = mWorkbook.getCellStyleAt(i);
+            if (style.getFillPattern() == FillPatternType.SOLID_FOREGROUND
+                && style.getFillForegroundColor() == IndexedColors.RED.getIndex()) {
+                mStyles.put(Kind.MISSED, style);
+                break;
+            }
+        }
+    }
+
+    CellStyle get(Kind kind) {
+        CellStyle style = mStyles.get(kind);
+        if (style == null) {
+            style = create(kind);
+            mStyles.put(kind, style);
+        }
+        return style;
+    }
+
+    private CellStyle create(Kind kind) {
+        switch (kind) {
+            case TITLE:
+                return createTitleStyle(mWorkbook);
+            case COMMENT:
+                return createCommentStyle(mWorkbook);
+            case PLURALS:
+                return createPlurarStyle(mWorkbook);
+            case KEY:
+                return createKeyStyle(mWorkbook);
+            case TEXT:
+                return createTextStyle(mWorkbook);
+            case MISSED:
+                return createMissedStyle(mWorkbook);
+            default:
+                throw new IllegalArgumentException("Unknown style " + kind);
+        }
+    }
+
+    private static CellStyle createTitleStyle(Workbook wb) {
+        Font bold = wb.createFont();
+        bold.setBold(true);
+
+        CellStyle style = wb.createCellStyle();
+        style.setFont(bold);
+        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setWrapText(true);
+
+        return style;
+    }
+
+    private static CellStyle createCommentStyle(Workbook wb) {
+
+        Font commentFont = wb.createFont();
+        commentFont.setColor(IndexedColors.GREEN.getIndex());
+        commentFont.setItalic(true);
+        commentFont.setFontHeightInPoints((short) 12);
+
+        CellStyle commentStyle = wb.createCellStyle();
+        commentStyle.setFont(commentFont);
+        return commentStyle;
+    }
+
+    private static CellStyle createPlurarStyle(Workbook wb) {
+
+        Font commentFont = wb.createFont();
+        commentFont.setColor(IndexedColors.GREY_50_PERCENT.getIndex());
+        commentFont.setItalic(true);
+        commentFont.setFontHeightInPoints((short)12);
+
+        CellStyle commentStyle = wb.createCellStyle();
+        commentStyle.setFont(commentFont);
+        return commentStyle;
+    }
+
+    private static CellStyle createKeyStyle(Workbook wb) {
+        Font bold = wb.createFont();
+        bold.setBold(true);
+        bold.setFontHeightInPoints((short)11);
+
+        CellStyle keyStyle = wb.createCellStyle();
+        keyStyle.setFont(bold);
+
+        return keyStyle;
+    }
+
+    private static CellStyle createTextStyle(Workbook wb) {
+        Font plain = wb.createFont();
+        plain.setFontHeightInPoints((short)12);
+
+        CellStyle textStyle = wb.createCellStyle();
+        textStyle.setFont(plain);
+
+        return textStyle;
+    }
+
+    private static CellStyle createMissedStyle(Workbook wb) {
+
+        CellStyle style = wb.createCellStyle();
+        style.setFillForegroundColor(IndexedColors.RED.getIndex());
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+        return style;
+    }
+}
@@ -0,0 +1,124 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes exported strings into CSV or TSV file as defined by RFC 4180, in UTF-8.
+ * <p>
+ * The file has the same columns as the exported sheet. Missing values are written as empty fields, while empty values
+ * are written as empty quoted fields, so that they can be told apart when importing.
+ */
+class CsvWriter implements SheetWriter {
+
+    private static final String LINE_END = "\r\n";
+
+    private final char mSeparator;
+
+    CsvWriter(char separator) {
+        mSeparator = separator;
+    }
+
+    /**
+     * @return field separator of CSV or TSV file, 0 for other files
+     */
+    static char getSeparator(File file) {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return ',';
+        } else if (name.endsWith(".tsv")) {
+            return '\t';
+        }
+        return 0;
+    }
+
+    @Override
+    public int write(File outFile, String sheetName, List<ResourceEntry> rows, List<LangStrings> langs)
+        throws IOException {
+        int cells = 0;
+        int columns = langs.size() + 2;
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFile),
+            StandardCharsets.UTF_8));
+        try {
+            writeField(out, "KEY");
+            out.write(mSeparator);
+            writeField(out, "default");
+            for (LangStrings lang : langs) {
+                out.write(mSeparator);
+                writeField(out, lang.lang);
+            }
+            out.write(LINE_END);
+
+            for (ResourceEntry entry : rows) {
+                switch (entry.type) {
+                    case COMMENT:
+                    case PLURALS:
+                        writeField(out, ToolExport.keyCellValue(entry));
+                        writeEmptyFields(out, columns - 1);
+                        break;
+                    default:
+                        writeField(out, entry.key);
+                        out.write(mSeparator);
+                        writeField(out, ToolExport.defaultValue(entry));
+                        cells++;
+                        for (LangStrings lang : langs) {
+                            out.write(mSeparator);
+                            String value = lang.values.get(entry.key);
+                            if (value != null) {
+                                writeField(out, value);
+                                cells++;
+                            }
+                        }
+                        break;
+                }
+                out.write(LINE_END);
+            }
+        } finally {
+            out.close();
+        }
+        return cells;
+    }
+
+    private void writeEmptyFields(Writer out, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.write(mSeparator);
+        }
+    }
+
+    /**
+     * Writes the value, quoted if it's empty or contains separator, quote or line break.
+     */
+    private void writeField(Writer out, String value) throws IOException {
+        if (!value.isEmpty() && !needsQuotes(value)) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                // quote is escaped by doubling it
+                out.write(value, start, i + 1 - start);
+                start = i;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == mSeparator || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
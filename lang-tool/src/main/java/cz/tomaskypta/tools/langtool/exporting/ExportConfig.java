@@ -16,6 +16,13 @@ public class ExportConfig extends CommonConfig {
     public String inputExportProject;
     public String outputFile;
     public Set<String> additionalResources;
+    public int checkpointInterval;
+    public boolean streaming;
+    public int streamingWindowSize;
+    public boolean incremental;
+    public boolean allModules;
+    public String cacheDir;
+    public long cacheMaxSize;
 
     public ExportConfig() {
         super();
@@ -27,6 +34,13 @@ public class ExportConfig extends CommonConfig {
         this.inputExportProject = other.inputExportProject;
         this.outputFile = other.outputFile;
         this.additionalResources = new HashSet<String>(other.additionalResources);
+        this.checkpointInterval = other.checkpointInterval;
+        this.streaming = other.streaming;
+        this.streamingWindowSize = other.streamingWindowSize;
+        this.incremental = other.incremental;
+        this.allModules = other.allModules;
+        this.cacheDir = other.cacheDir;
+        this.cacheMaxSize = other.cacheMaxSize;
     }
 
     public ExportConfig(CommandlineArguments args) {
@@ -35,6 +49,13 @@ public class ExportConfig extends CommonConfig {
         this.outputFile = args.getOutputFile();
         this.additionalResources = new HashSet<String>();
         addAdditionalResources(args.getAdditionalResources());
+        this.checkpointInterval = args.getCheckpointInterval();
+        this.streaming = args.isStreaming();
+        this.streamingWindowSize = args.getStreamingWindowSize();
+        this.incremental = args.isIncremental();
+        this.allModules = args.isAllModules();
+        this.cacheDir = args.getCacheDir();
+        this.cacheMaxSize = args.getCacheSize() * 1024L * 1024L;
     }
 
     private void addAdditionalResources(String additionalResourcesRaw) {
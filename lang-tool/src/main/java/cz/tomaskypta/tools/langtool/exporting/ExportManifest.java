@@ -0,0 +1,129 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Digests of all exported resource files, stored in a hidden sheet of the exported workbook. Incremental export
+ * compares them with the current files and exports again only the changed languages.
+ */
+class ExportManifest {
+
+    static final String SHEET_NAME = "_manifest";
+
+    /**
+     * Digests of resource files by file name, by name of the values directory.
+     */
+    private final Map<String, Map<String, String>> mDigests = new LinkedHashMap<String, Map<String, String>>();
+
+    /**
+     * Computes digests of the allowed resource files in the given values directories.
+     */
+    static ExportManifest create(Collection<File> valueDirs, Collection<String> allowedFiles) throws IOException {
+        return create(valueDirs, allowedFiles, null, null);
+    }
+
+    /**
+     * Computes digests of the allowed resource files in the changed values directories, digests of the other
+     * directories are taken from the previous manifest.
+     *
+     * @param changedDirs names of the changed directories, {@code null} if all of them could be changed
+     */
+    static ExportManifest create(Collection<File> valueDirs, Collection<String> allowedFiles, ExportManifest previous,
+                                 Set<String> changedDirs) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        for (File dir : valueDirs) {
+            if (previous != null && changedDirs != null && !changedDirs.contains(dir.getName())
+                && previous.mDigests.containsKey(dir.getName())) {
+                manifest.mDigests.put(dir.getName(), previous.mDigests.get(dir.getName()));
+                continue;
+            }
+            Map<String, String> files = new TreeMap<String, String>();
+            for (String fileName : allowedFiles) {
+                File file = new File(dir, fileName);
+                if (!file.exists()) {
+                    continue;
+                }
+                InputStream in = new FileInputStream(file);
+                try {
+                    files.put(fileName, DigestUtils.sha256Hex(in));
+                } finally {
+                    in.close();
+                }
+            }
+            manifest.mDigests.put(dir.getName(), files);
+        }
+        return manifest;
+    }
+
+    /**
+     * @return manifest stored in the workbook or {@code null} if the workbook has none
+     */
+    static ExportManifest read(Workbook wb) {
+        Sheet sheet = wb.getSheet(SHEET_NAME);
+        if (sheet == null) {
+            return null;
+        }
+        ExportManifest manifest = new ExportManifest();
+        Iterator<Row> it = sheet.rowIterator();
+        while (it.hasNext()) {
+            Row row = it.next();
+            Cell dir = row.getCell(0);
+            Cell file = row.getCell(1);
+            Cell digest = row.getCell(2);
+            if (dir == null || file == null || digest == null) {
+                continue;
+            }
+            Map<String, String> files = manifest.mDigests.get(dir.getStringCellValue());
+            if (files == null) {
+                files = new TreeMap<String, String>();
+                manifest.mDigests.put(dir.getStringCellValue(), files);
+            }
+            files.put(file.getStringCellValue(), digest.getStringCellValue());
+        }
+        return manifest;
+    }
+
+    /**
+     * Stores the manifest into hidden sheet of the workbook, replacing the previous one.
+     */
+    void write(Workbook wb) {
+        int index = wb.getSheetIndex(SHEET_NAME);
+        if (index != -1) {
+            wb.removeSheetAt(index);
+        }
+        Sheet sheet = wb.createSheet(SHEET_NAME);
+        wb.setSheetHidden(wb.getSheetIndex(sheet), true);
+        int rowIndex = 0;
+        for (Map.Entry<String, Map<String, String>> dir : mDigests.entrySet()) {
+            for (Map.Entry<String, String> file : dir.getValue().entrySet()) {
+                Row row = sheet.createRow(rowIndex++);
+                row.createCell(0).setCellValue(dir.getKey());
+                row.createCell(1).setCellValue(file.getKey());
+                row.createCell(2).setCellValue(file.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the directory contains the same files with the same content in both manifests
+     */
+    boolean isSame(ExportManifest other, String dirName) {
+        Map<String, String> files = mDigests.get(dirName);
+        return files != null && files.equals(other.mDigests.get(dirName));
+    }
+}
@@ -0,0 +1,92 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Keys of the default language with their rows in the sheet. Every key has a dense id, so that sets of keys, like
+ * keys missing in a language, can be kept in a {@link BitSet}.
+ * <p>
+ * Ids are found in an open-addressed table of {@code id + 1}, 0 being an empty slot, so that lookups of every row of
+ * every language don't box the ids.
+ */
+class KeyDictionary {
+
+    private String[] mKeys = new String[64];
+    private int[] mRows = new int[64];
+    // power of two length, at most half full
+    private int[] mSlots = new int[128];
+    private int mSize;
+
+    /**
+     * Adds the key or moves the existing key to the row.
+     *
+     * @return id of the key
+     */
+    int put(String key, int row) {
+        int slot = findSlot(key);
+        if (mSlots[slot] != 0) {
+            int id = mSlots[slot] - 1;
+            mRows[id] = row;
+            return id;
+        }
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mRows = Arrays.copyOf(mRows, mSize * 2);
+            rehash(mSlots.length * 2);
+            slot = findSlot(key);
+        }
+        mKeys[mSize] = key;
+        mRows[mSize] = row;
+        mSlots[slot] = mSize + 1;
+        return mSize++;
+    }
+
+    /**
+     * @return id of the key or -1 if the key does not exist
+     */
+    int getId(String key) {
+        return mSlots[findSlot(key)] - 1;
+    }
+
+    String getKey(int id) {
+        return mKeys[id];
+    }
+
+    int getRow(int id) {
+        return mRows[id];
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @return set of ids of all keys
+     */
+    BitSet all() {
+        BitSet ids = new BitSet(mSize);
+        ids.set(0, mSize);
+        return ids;
+    }
+
+    /**
+     * @return slot of the key, or the empty slot where the key belongs
+     */
+    private int findSlot(String key) {
+        int mask = mSlots.length - 1;
+        int h = key.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (mSlots[slot] != 0 && !mKeys[mSlots[slot] - 1].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int length) {
+        mSlots = new int[length];
+        for (int id = 0; id < mSize; id++) {
+            mSlots[findSlot(mKeys[id])] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All values of a single language, collected from every exported resource file of one {@code values-*} directory.
+ */
+class LangStrings {
+
+    final String lang;
+    /**
+     * Entries of every resource file in the order the files were read.
+     */
+    final Map<File, List<ResourceEntry>> files = new LinkedHashMap<File, List<ResourceEntry>>();
+    /**
+     * Values of all files by key.
+     */
+    final Map<String, String> values = new HashMap<String, String>();
+
+    LangStrings(String lang) {
+        this.lang = lang;
+    }
+
+    void add(File file, List<ResourceEntry> entries) {
+        files.put(file, entries);
+        for (ResourceEntry entry : entries) {
+            if (entry.hasValue()) {
+                values.put(entry.key, entry.value);
+            }
+        }
+    }
+}
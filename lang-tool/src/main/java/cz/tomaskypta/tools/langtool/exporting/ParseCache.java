@@ -0,0 +1,272 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Persistent cache of parsed resource files. Entries of every file are stored in a binary file of the cache
+ * directory, together with path, size, modification time and digest of the resource file.
+ * <p>
+ * The cached entries are used when the resource file has the same size and modification time. When only the
+ * modification time differs, e.g. after checkout, the digest of the content decides. Files modified just before they
+ * were cached are always checked by digest, their modification time could repeat with different content.
+ * <p>
+ * The least recently used files are evicted when the cache exceeds its maximum size, see {@link #evict()}. Different
+ * resource files can be read and stored concurrently.
+ */
+class ParseCache {
+
+    static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4c545043;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".bin";
+    /**
+     * Files modified less than the time before they are cached are checked by digest.
+     */
+    private static final long RACY_INTERVAL_MILLIS = 2000;
+    private static final long RACY_MODIFIED = -1;
+
+    /**
+     * Content of a resource file read at once with its modification time. The time is taken before the content, so
+     * that a file changed while it's parsed is stored with an older time and checked by digest next time.
+     */
+    static class Snapshot {
+        final long modified;
+        final byte[] content;
+        final byte[] digest;
+
+        private Snapshot(long modified, byte[] content) {
+            this.modified = modified;
+            this.content = content;
+            this.digest = DigestUtils.sha256(content);
+        }
+
+        static Snapshot of(File file) throws IOException {
+            long modified = file.lastModified();
+            return new Snapshot(modified, Files.readAllBytes(file.toPath()));
+        }
+    }
+
+    private final File mDir;
+    private final long mMaxSize;
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+
+    /**
+     * @param maxSize maximum total size of the cached files in bytes
+     */
+    ParseCache(File dir, long maxSize) {
+        mDir = dir;
+        mMaxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * @return cached entries of the resource file or {@code null} if the file is not cached or was changed
+     */
+    List<ResourceEntry> get(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        File cacheFile = getCacheFile(path);
+        List<ResourceEntry> entries = null;
+        byte[] digest = new byte[32];
+        long modified = 0;
+        // taken before the content is digested, like by Snapshot
+        long fileModified = file.lastModified();
+        long fileLength = file.length();
+        if (cacheFile.isFile()) {
+            try {
+                // the whole file is read at once, entries are decoded from memory
+                ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+                if (in.getInt() == MAGIC && in.getInt() == VERSION && path.equals(readString(in))
+                    && in.getLong() == fileLength) {
+                    modified = in.getLong();
+                    in.get(digest);
+                    if (modified == fileModified || Arrays.equals(digest, digest(file))) {
+                        entries = readEntries(in);
+                    }
+                }
+            } catch (IOException | BufferUnderflowException e) {
+                // damaged file is replaced by the parsed entries
+                entries = null;
+            }
+        }
+        if (entries == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        mHits.incrementAndGet();
+        if (modified != fileModified) {
+            // the same content, checked only by size and modification time next time
+            put(path, fileLength, fileModified, digest, entries);
+        } else {
+            cacheFile.setLastModified(System.currentTimeMillis());
+        }
+        return entries;
+    }
+
+    /**
+     * Stores entries of the resource file parsed from the snapshot.
+     */
+    void put(File file, Snapshot snapshot, List<ResourceEntry> entries) throws IOException {
+        put(file.getAbsolutePath(), snapshot.content.length, snapshot.modified, snapshot.digest, entries);
+    }
+
+    private void put(String path, long length, long modified, byte[] digest, List<ResourceEntry> entries)
+        throws IOException {
+        if (System.currentTimeMillis() - modified < RACY_INTERVAL_MILLIS) {
+            modified = RACY_MODIFIED;
+        }
+        mDir.mkdirs();
+        File cacheFile = getCacheFile(path);
+        // other exports can read the cache at the same time, the file is replaced at once
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", mDir);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, path);
+                out.writeLong(length);
+                out.writeLong(modified);
+                out.write(digest);
+                writeEntries(out, entries);
+            } finally {
+                out.close();
+            }
+            try {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files until the cache fits into its maximum size.
+     */
+    void evict() {
+        File[] files = mDir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        List<File> cacheFiles = new ArrayList<File>(files.length);
+        for (File file : files) {
+            size += file.length();
+            cacheFiles.add(file);
+        }
+        if (size <= mMaxSize) {
+            return;
+        }
+        Collections.sort(cacheFiles, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : cacheFiles) {
+            if (size <= mMaxSize) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    int getHits() {
+        return mHits.get();
+    }
+
+    int getMisses() {
+        return mMisses.get();
+    }
+
+    private File getCacheFile(String path) {
+        return new File(mDir, DigestUtils.sha256Hex(path) + SUFFIX);
+    }
+
+    private static byte[] digest(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return DigestUtils.sha256(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeEntries(DataOutputStream out, List<ResourceEntry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (ResourceEntry entry : entries) {
+            out.writeByte(entry.type.ordinal());
+            writeString(out, entry.name);
+            // keys of strings are usually the same as their names
+            writeString(out, entry.key != null && entry.key.equals(entry.name) ? null : entry.key);
+            writeString(out, entry.value);
+        }
+    }
+
+    private static List<ResourceEntry> readEntries(ByteBuffer in) throws IOException {
+        ResourceEntry.Type[] types = ResourceEntry.Type.values();
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Invalid number of entries " + count);
+        }
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>(count);
+        for (int i = 0; i < count; i++) {
+            int type = in.get();
+            if (type < 0 || type >= types.length) {
+                throw new IOException("Unknown entry type " + type);
+            }
+            String name = readString(in);
+            String key = readString(in);
+            String value = readString(in);
+            entries.add(new ResourceEntry(types[type], name, key != null ? key : name, value));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the string in UTF-8 preceded by its length, -1 for {@code null}. Unlike
+     * {@link DataOutputStream#writeUTF(String)} the length is not limited.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,109 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.poi.ss.util.WorkbookUtil;
+
+/**
+ * Finds resource directories of all modules and source sets of a multi-module project.
+ */
+class ResourceDirs {
+
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+    private static final Set<String> SKIPPED_DIRS = new HashSet<String>();
+
+    static {
+        SKIPPED_DIRS.add("build");
+        SKIPPED_DIRS.add("node_modules");
+    }
+
+    private ResourceDirs() {
+    }
+
+    /**
+     * Finds all {@code res} directories in the project containing default values with some of the allowed files.
+     * Build outputs and hidden directories are skipped.
+     *
+     * @return resource directories by unique sheet name derived from their path, e.g. {@code app-main} for
+     * {@code app/src/main/res}, ordered by path
+     */
+    static Map<String, File> find(File project, final Collection<String> allowedFiles) throws IOException {
+        final List<Path> found = new ArrayList<Path>();
+        final Path root = project.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+                if (!dir.equals(root) && (name.startsWith(".") || SKIPPED_DIRS.contains(name))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if ("res".equals(name) && hasDefaultValues(dir.toFile(), allowedFiles)) {
+                    found.add(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(found);
+
+        Map<String, File> resDirs = new LinkedHashMap<String, File>();
+        // sheet names are compared case-insensitively by workbooks
+        Set<String> usedNames = new HashSet<String>();
+        for (Path dir : found) {
+            String name = getSheetName(project, root.relativize(dir));
+            String uniqueName = name;
+            for (int i = 2; usedNames.contains(uniqueName.toLowerCase(Locale.ROOT)); i++) {
+                String suffix = "~" + i;
+                uniqueName = name.substring(0, Math.min(name.length(), MAX_SHEET_NAME_LENGTH - suffix.length()))
+                    + suffix;
+            }
+            usedNames.add(uniqueName.toLowerCase(Locale.ROOT));
+            resDirs.put(uniqueName, dir.toFile());
+        }
+        return resDirs;
+    }
+
+    private static boolean hasDefaultValues(File res, Collection<String> allowedFiles) {
+        File values = new File(res, "values");
+        for (String fileName : allowedFiles) {
+            if (new File(values, fileName).isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getSheetName(File project, Path relativeRes) {
+        StringBuilder name = new StringBuilder();
+        // path without the res directory itself
+        for (int i = 0; i < relativeRes.getNameCount() - 1; i++) {
+            String part = relativeRes.getName(i).toString();
+            if ("src".equals(part)) {
+                continue;
+            }
+            if (name.length() > 0) {
+                name.append('-');
+            }
+            name.append(part);
+        }
+        if (name.length() == 0) {
+            name.append(project.getAbsoluteFile().getName());
+        }
+        return WorkbookUtil.createSafeSheetName(name.toString());
+    }
+}
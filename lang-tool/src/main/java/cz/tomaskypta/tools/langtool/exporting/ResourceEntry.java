@@ -0,0 +1,49 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+/**
+ * Single item read from an Android resource file.
+ * <p>
+ * Each entry corresponds to one row of the exported sheet. Plurals are represented by a {@link Type#PLURALS} entry
+ * followed by one {@link Type#PLURALS_ITEM} entry per quantity.
+ */
+class ResourceEntry {
+
+    enum Type {
+        COMMENT, STRING, PLURALS, PLURALS_ITEM, ARRAY_ITEM
+    }
+
+    /**
+     * Type of the entry.
+     */
+    final Type type;
+    /**
+     * Name of the resource the entry belongs to, {@code null} for comments.
+     */
+    final String name;
+    /**
+     * Key used in the sheet, e.g. {@code name}, {@code name!cdata}, {@code name#quantity} or {@code name[index]}.
+     */
+    final String key;
+    /**
+     * Text content of the entry or the comment text.
+     */
+    final String value;
+
+    ResourceEntry(Type type, String name, String key, String value) {
+        this.type = type;
+        this.name = name;
+        this.key = key;
+        this.value = value;
+    }
+
+    static ResourceEntry comment(String text) {
+        return new ResourceEntry(Type.COMMENT, null, null, text);
+    }
+
+    /**
+     * @return {@code true} if the entry holds a translatable value
+     */
+    boolean hasValue() {
+        return type == Type.STRING || type == Type.PLURALS_ITEM || type == Type.ARRAY_ITEM;
+    }
+}
@@ -0,0 +1,204 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader of Android resource files. Top level items of the file are passed to the {@link Handler} as they
+ * are parsed, no document is built.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class ResourceReader {
+
+    private static final String PROPERTY_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    /**
+     * Receives items of the resource file in their order.
+     */
+    public interface Handler {
+
+        void onComment(String text);
+
+        /**
+         * @param cdata {@code true} if the value starts with CDATA section
+         */
+        void onString(String name, String value, boolean cdata);
+
+        void onPluralsStart(String name);
+
+        void onPluralsItem(String quantity, String value);
+
+        void onStringArrayStart(String name);
+
+        void onStringArrayItem(String value);
+    }
+
+    private final XMLInputFactory mFactory;
+
+    public ResourceReader() {
+        mFactory = XMLInputFactory.newInstance();
+        // resources are parsed the same way as by non-namespace aware DOM parser
+        mFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        mFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        mFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        if (mFactory.isPropertySupported(PROPERTY_REPORT_CDATA)) {
+            mFactory.setProperty(PROPERTY_REPORT_CDATA, true);
+        }
+    }
+
+    public void read(File file, Handler handler) throws IOException, XMLStreamException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        try {
+            read(file, in, handler);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the content of the file already read into memory.
+     */
+    public void read(File file, byte[] content, Handler handler) throws XMLStreamException {
+        read(file, new ByteArrayInputStream(content), handler);
+    }
+
+    private void read(File file, InputStream in, Handler handler) throws XMLStreamException {
+        XMLStreamReader reader = mFactory.createXMLStreamReader(file.toURI().toString(), in);
+        try {
+            read(reader, handler);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void read(XMLStreamReader reader, Handler handler) throws XMLStreamException {
+        // move to the root element
+        reader.nextTag();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.COMMENT) {
+                handler.onComment(reader.getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if ("string".equals(name)) {
+                    readString(reader, handler);
+                } else if ("plurals".equals(name)) {
+                    readPlurals(reader, handler);
+                } else if ("string-array".equals(name)) {
+                    readStringArray(reader, handler);
+                } else {
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                // end of the root element
+                return;
+            }
+        }
+    }
+
+    private void readString(XMLStreamReader reader, Handler handler) throws XMLStreamException {
+        String name = reader.getAttributeValue(null, "name");
+        if ("false".equals(reader.getAttributeValue(null, "translatable"))) {
+            skipElement(reader);
+            return;
+        }
+        StringBuilder value = new StringBuilder();
+        int firstChild = readText(reader, value);
+        if (firstChild == -1) {
+            throw new IllegalArgumentException("Unpredictable node format at string " + name);
+        }
+        handler.onString(name, value.toString(), firstChild == XMLStreamConstants.CDATA);
+    }
+
+    private void readPlurals(XMLStreamReader reader, Handler handler) throws XMLStreamException {
+        handler.onPluralsStart(reader.getAttributeValue(null, "name"));
+        StringBuilder value = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("item".equals(reader.getLocalName())) {
+                    String quantity = reader.getAttributeValue(null, "quantity");
+                    value.setLength(0);
+                    readText(reader, value);
+                    handler.onPluralsItem(quantity, value.toString());
+                } else {
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return;
+            }
+        }
+    }
+
+    private void readStringArray(XMLStreamReader reader, Handler handler) throws XMLStreamException {
+        handler.onStringArrayStart(reader.getAttributeValue(null, "name"));
+        StringBuilder value = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if ("item".equals(reader.getLocalName())) {
+                    value.setLength(0);
+                    readText(reader, value);
+                    handler.onStringArrayItem(value.toString());
+                } else {
+                    skipElement(reader);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Appends text content of the current element, including text of nested elements, and moves to its end.
+     *
+     * @return type of the first child node of the element, -1 if the element is empty
+     */
+    private static int readText(XMLStreamReader reader, StringBuilder text) throws XMLStreamException {
+        int firstChild = -1;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (firstChild == -1 && event != XMLStreamConstants.END_ELEMENT) {
+                firstChild = event;
+            }
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return firstChild;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
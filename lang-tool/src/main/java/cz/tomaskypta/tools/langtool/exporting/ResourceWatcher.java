@@ -0,0 +1,100 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the values directories of a resource directory for changes of the allowed resource files. Values
+ * directories created later are watched as well.
+ */
+class ResourceWatcher implements Closeable {
+
+    private static final String DIR_VALUES = "values";
+
+    private final WatchService mService;
+    private final Path mRes;
+    private final Collection<String> mAllowedFiles;
+
+    ResourceWatcher(File res, Collection<String> allowedFiles) throws IOException {
+        mService = FileSystems.getDefault().newWatchService();
+        mRes = res.toPath();
+        mAllowedFiles = allowedFiles;
+        mRes.register(mService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        for (File dir : res.listFiles()) {
+            if (isValuesDir(dir)) {
+                register(dir.toPath());
+            }
+        }
+    }
+
+    /**
+     * Waits for a change of the resource files. A burst of changes, like saving more files at once, is collected
+     * until there is no change for the given delay.
+     *
+     * @return names of the changed values directories, e.g. {@code values-cs}, or {@code null} if events were lost
+     * and any directory could be changed
+     */
+    Set<String> await(long delayMillis) throws IOException, InterruptedException {
+        Set<String> changedDirs = new TreeSet<String>();
+        boolean lost = false;
+        WatchKey key = mService.take();
+        while (key != null) {
+            lost |= collect(key, changedDirs);
+            key = changedDirs.isEmpty() && !lost ? mService.take() : mService.poll(delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return lost ? null : changedDirs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mService.close();
+    }
+
+    /**
+     * @return {@code true} if events were lost
+     */
+    private boolean collect(WatchKey key, Set<String> changedDirs) throws IOException {
+        Path dir = (Path) key.watchable();
+        boolean lost = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                lost = true;
+                continue;
+            }
+            Path name = (Path) event.context();
+            if (!dir.equals(mRes)) {
+                if (mAllowedFiles.contains(name.toString())) {
+                    changedDirs.add(dir.getFileName().toString());
+                }
+            } else if (isValuesDir(dir.resolve(name).toFile())) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    register(dir.resolve(name));
+                }
+                changedDirs.add(name.toString());
+            }
+        }
+        key.reset();
+        return lost;
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(mService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private static boolean isValuesDir(File dir) {
+        String name = dir.getName();
+        return name.equals(DIR_VALUES) || name.startsWith(DIR_VALUES + "-") && (dir.isDirectory() || !dir.exists());
+    }
+}
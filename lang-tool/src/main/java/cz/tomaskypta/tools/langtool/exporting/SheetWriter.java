@@ -0,0 +1,53 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Format of the exported file which is written row by row. Values of all languages have to be known upfront, the
+ * rows are written in a single pass.
+ * <p>
+ * Files not supported by any writer are exported into an in-memory workbook.
+ */
+interface SheetWriter {
+
+    /**
+     * @return number of written values of all languages
+     */
+    int write(File outFile, String sheetName, List<ResourceEntry> rows, List<LangStrings> langs) throws IOException;
+
+    /**
+     * @return files written by {@link #write(File, String, List, List)}
+     */
+    default List<File> getFiles(File outFile, List<LangStrings> langs) {
+        return Collections.singletonList(outFile);
+    }
+
+    /**
+     * Chooses the writer by extension of the file.
+     *
+     * @param executor executor for writing more files concurrently, can be {@code null}
+     * @return writer of the file or {@code null} if the file has to be exported into an in-memory workbook
+     */
+    static SheetWriter forFile(File file, ExportConfig config, ExecutorService executor) {
+        char separator = CsvWriter.getSeparator(file);
+        if (separator != 0) {
+            return new CsvWriter(separator);
+        } else if (XliffWriter.isXliff(file)) {
+            return new XliffWriter(executor);
+        } else if (config.streaming && file.getName().toLowerCase().endsWith(".xlsx")) {
+            return new StreamingExcelWriter(config.streamingWindowSize);
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} if the file is a workbook, which can have more sheets
+     */
+    static boolean isWorkbook(File file) {
+        return CsvWriter.getSeparator(file) == 0 && !XliffWriter.isXliff(file);
+    }
+}
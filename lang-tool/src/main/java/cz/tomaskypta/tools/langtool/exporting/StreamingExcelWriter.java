@@ -0,0 +1,107 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/**
+ * Writes exported strings into xlsx file using POI streaming API.
+ * <p>
+ * Only a window of the last rows is kept in memory, older rows are flushed into a compressed temporary file. That's
+ * why every row has to be complete when it's created - values of all languages are known upfront.
+ */
+public class StreamingExcelWriter implements SheetWriter {
+
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    private final int windowSize;
+
+    public StreamingExcelWriter(int windowSize) {
+        this.windowSize = windowSize > 0 ? windowSize : DEFAULT_WINDOW_SIZE;
+    }
+
+    @Override
+    public int write(File outFile, String sheetName, List<ResourceEntry> rows, List<LangStrings> langs)
+        throws IOException {
+        int cells = 0;
+        SXSSFWorkbook wb = new SXSSFWorkbook(windowSize);
+        wb.setCompressTempFiles(true);
+        try {
+            CellStyles styles = new CellStyles(wb);
+            CellStyle titleStyle = styles.get(CellStyles.Kind.TITLE);
+            CellStyle commentStyle = styles.get(CellStyles.Kind.COMMENT);
+            CellStyle plurarStyle = styles.get(CellStyles.Kind.PLURALS);
+            CellStyle keyStyle = styles.get(CellStyles.Kind.KEY);
+            CellStyle textStyle = styles.get(CellStyles.Kind.TEXT);
+            CellStyle missedStyle = styles.get(CellStyles.Kind.MISSED);
+
+            SXSSFSheet sheet = wb.createSheet(sheetName);
+            sheet.createFreezePane(1, 1);
+            sheet.setColumnWidth(0, 40 * 256);
+            for (int i = 0; i <= langs.size(); i++) {
+                sheet.setColumnWidth(i + 1, 60 * 256);
+            }
+
+            int rowIndex = 0;
+            Row titleRow = sheet.createRow(rowIndex++);
+            createCell(titleRow, 0, "KEY", titleStyle);
+            createCell(titleRow, 1, "default", titleStyle);
+            for (int i = 0; i < langs.size(); i++) {
+                createCell(titleRow, i + 2, langs.get(i).lang, titleStyle);
+            }
+
+            for (ResourceEntry entry : rows) {
+                Row row = sheet.createRow(rowIndex++);
+                switch (entry.type) {
+                    case COMMENT:
+                        createCell(row, 0, ToolExport.keyCellValue(entry), commentStyle);
+                        sheet.addMergedRegion(new CellRangeAddress(row.getRowNum(), row.getRowNum(), 0, 255));
+                        break;
+                    case PLURALS:
+                        createCell(row, 0, ToolExport.keyCellValue(entry), plurarStyle);
+                        break;
+                    default:
+                        createCell(row, 0, entry.key, keyStyle);
+                        createCell(row, 1, ToolExport.defaultValue(entry), textStyle);
+                        cells++;
+                        for (int i = 0; i < langs.size(); i++) {
+                            String value = langs.get(i).values.get(entry.key);
+                            if (value == null) {
+                                row.createCell(i + 2).setCellStyle(missedStyle);
+                            } else {
+                                createCell(row, i + 2, value, textStyle);
+                                cells++;
+                            }
+                        }
+                        break;
+                }
+            }
+
+            FileOutputStream outStream = new FileOutputStream(outFile);
+            try {
+                wb.write(outStream);
+            } finally {
+                outStream.close();
+            }
+        } finally {
+            // deletes the temporary files
+            wb.dispose();
+            wb.close();
+        }
+        return cells;
+    }
+
+    private static void createCell(Row row, int column, String value, CellStyle style) {
+        Cell cell = row.createCell(column);
+        cell.setCellValue(value);
+        cell.setCellStyle(style);
+    }
+}
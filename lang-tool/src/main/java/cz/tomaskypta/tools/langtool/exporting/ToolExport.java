@@ -2,18 +2,21 @@ package cz.tomaskypta.tools.langtool.exporting;
 
 import java.io.*;
 import java.util.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
+import cz.tomaskypta.tools.langtool.RunReport;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 
@@ -21,22 +24,65 @@ public class ToolExport {
 
     private static final String DIR_VALUES = "values";
     private static final String[] POTENTIAL_RES_DIRS = new String[]{"res", "src/main/res"};
+    private static final String PHASE_DEFAULT_LANG = "default language";
+    private static final String PHASE_PARSE_LANGS = "parse languages";
+    private static final String PHASE_FILL_SHEET = "fill sheet";
+    private static final String PHASE_WRITE_WORKBOOK = "write workbook";
+    /**
+     * Time without changes of resource files after which watch mode updates the exported file.
+     */
+    private static final long WATCH_DELAY_MILLIS = 300;
+
+    private static class ParsedFile {
+        final byte[] digest;
+        final List<ResourceEntry> entries;
+
+        ParsedFile(byte[] digest, List<ResourceEntry> entries) {
+            this.digest = digest;
+            this.entries = entries;
+        }
+    }
 
-    private DocumentBuilder builder;
+    /**
+     * Resource readers are not thread-safe, every thread parsing resources has its own. Readers are kept for the
+     * following exports of the thread.
+     */
+    private static final ThreadLocal<ResourceReader> reader = ThreadLocal.withInitial(ResourceReader::new);
+    private ExecutorService mExecutor;
     private File outExcelFile;
     private String project;
-    private Map<String, Integer> keysIndex;
+    private KeyDictionary keysIndex;
+    private Workbook wb;
+    private CellStyles styles;
+    private int exportedLangs;
     private PrintStream out;
     private ExportConfig mConfig;
     private Set<String> sAllowedFiles = new HashSet<String>();
+    private RunReport mReport = new RunReport("export");
+    private ParseCache mCache;
+    /**
+     * Parsed resource files by path, kept between exports of watch mode.
+     */
+    private Map<String, ParsedFile> mParsed;
+    /**
+     * Names of the values directories changed since the previous export of watch mode, {@code null} if any of them
+     * could be changed. Files of the other directories are taken from {@link #mParsed} without reading them.
+     */
+    private Set<String> mChangedDirs;
+    /**
+     * Manifest of the previous export, digests of the unchanged directories are taken from it.
+     */
+    private ExportManifest mManifest;
+    /**
+     * Languages written by the export.
+     */
+    private final List<String> mUpdatedLangs = new ArrayList<String>();
 
     {
         sAllowedFiles.add("strings.xml");
     }
 
     public ToolExport(PrintStream out) throws ParserConfigurationException {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        builder = dbf.newDocumentBuilder();
         this.out = out == null ? System.out : out;
     }
 
@@ -46,33 +92,396 @@ public class ToolExport {
     }
 
     public static void run(PrintStream out, ExportConfig config) throws SAXException, IOException, ParserConfigurationException {
+        ToolExport tool = create(out, config);
+        if (tool == null) {
+            return;
+        }
+        try {
+            tool.exportAndReport();
+        } finally {
+            if (tool.mExecutor != null) {
+                tool.mExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Exports the project and keeps the exported file up to date until the thread is interrupted. After a burst of
+     * changes of the resource files, the workbook is updated like by incremental export, only the changed languages
+     * are written again. Parsed resource files are kept in memory, only files of the changed directories are read and
+     * parsed again. Every update prints a single line with the updated languages. A failed update, e.g. of a file
+     * saved in the middle of editing, is reported and the next change updates the file again.
+     */
+    public static void watch(PrintStream out, ExportConfig config) throws SAXException, IOException,
+        ParserConfigurationException {
+        if (config.allModules) {
+            System.err.println("Watch mode doesn't support all modules.");
+            return;
+        }
+        config = new ExportConfig(config);
+        ToolExport tool = create(out, config);
+        if (tool == null) {
+            return;
+        }
+        File res = tool.findResourceDir(new File(config.inputExportProject));
+        if (res == null) {
+            System.err.println("Cannot find resource directory.");
+            return;
+        }
+        config.incremental = SheetWriter.forFile(tool.outExcelFile, config, null) == null;
+        tool.mParsed = new ConcurrentHashMap<String, ParsedFile>();
+        ResourceWatcher watcher = new ResourceWatcher(res, tool.sAllowedFiles);
+        PrintStream events = tool.out;
+        PrintStream quiet = new PrintStream(OutputStream.nullOutputStream());
+        try {
+            tool.exportAndReport();
+            events.println();
+            events.println("Watching " + res.getPath());
+            // directories changed since the last successful update
+            Set<String> pendingDirs = new TreeSet<String>();
+            while (true) {
+                Set<String> changedDirs = watcher.await(WATCH_DELAY_MILLIS);
+                if (changedDirs == null || pendingDirs == null) {
+                    pendingDirs = null;
+                } else {
+                    pendingDirs.addAll(changedDirs);
+                }
+                long start = System.nanoTime();
+                tool.reset();
+                tool.mChangedDirs = pendingDirs;
+                tool.out = quiet;
+                try {
+                    tool.exportAndReport();
+                    pendingDirs = new TreeSet<String>();
+                    events.println(String.format("%tT %s updated in %d ms: %s", System.currentTimeMillis(),
+                        tool.outExcelFile.getName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        tool.mUpdatedLangs.isEmpty() ? "no changes" : String.join(", ", tool.mUpdatedLangs)));
+                } catch (IOException | SAXException | RuntimeException e) {
+                    events.println(String.format("%tT %s not updated after change of %s: %s",
+                        System.currentTimeMillis(), tool.outExcelFile.getName(),
+                        pendingDirs == null ? "resource files" : String.join(", ", pendingDirs), e));
+                } finally {
+                    tool.out = events;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            watcher.close();
+            if (tool.mExecutor != null) {
+                tool.mExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @return tool exporting the project of the config or {@code null} if the config has no project
+     */
+    private static ToolExport create(PrintStream out, ExportConfig config) throws ParserConfigurationException {
         ToolExport tool = new ToolExport(out);
         if (StringUtils.isEmpty(config.inputExportProject)) {
             tool.out.println("Cannot export, missing config");
-            return;
+            return null;
         }
         File project = new File(config.inputExportProject);
         if (StringUtils.isEmpty(config.outputFile)) {
-            config.outputFile = "exported_strings_" + System.currentTimeMillis() + ".xls";
+            config.outputFile = new File(config.workingDir, "exported_strings_" + System.currentTimeMillis() + ".xls")
+                .getPath();
         }
         tool.outExcelFile = new File(config.outputFile);
         tool.project = project.getName();
         tool.mConfig = config;
         tool.sAllowedFiles.addAll(config.additionalResources);
-        tool.export(project);
+        if (config.threads > 1) {
+            tool.mExecutor = Executors.newFixedThreadPool(config.threads);
+        }
+        if (!StringUtils.isEmpty(config.cacheDir)) {
+            tool.mCache = new ParseCache(new File(config.cacheDir), config.cacheMaxSize);
+        }
+        return tool;
+    }
+
+    private void exportAndReport() throws SAXException, IOException {
+        export(new File(mConfig.inputExportProject));
+        if (mCache != null) {
+            mCache.evict();
+            out.println();
+            out.println(String.format("Parse cache: %d hits, %d misses", mCache.getHits(), mCache.getMisses()));
+        }
+        mReport.finish();
+        mReport.printSummary(out);
+        if (!StringUtils.isEmpty(mConfig.reportFile)) {
+            mReport.write(new File(mConfig.reportFile));
+        }
+    }
+
+    /**
+     * Forgets the state of the previous export, before exporting again in watch mode.
+     */
+    private void reset() {
+        if (wb != null) {
+            try {
+                wb.close();
+            } catch (IOException e) {
+                // only releases the workbook of a failed export
+            }
+        }
+        wb = null;
+        styles = null;
+        keysIndex = null;
+        exportedLangs = 0;
+        mReport = new RunReport("export");
+        mUpdatedLangs.clear();
     }
 
     private void export(File project) throws SAXException, IOException {
+        if (mConfig.allModules) {
+            exportModules(project);
+            return;
+        }
         File res = findResourceDir(project);
         if (res == null) {
             System.err.println("Cannot find resource directory.");
             return;
         }
+        SheetWriter writer = SheetWriter.forFile(outExcelFile, mConfig, mExecutor);
+        if (writer != null) {
+            if (mConfig.incremental) {
+                out.println("Incremental export is supported only by in-memory workbook, exporting all languages");
+            }
+            exportStreaming(res, writer);
+            return;
+        }
+        if (mConfig.streaming) {
+            out.println("Streaming export supports only xlsx files, using in-memory workbook");
+        }
+        List<File> langDirs = findLangDirs(res);
+        ExportManifest manifest = null;
+        if (mConfig.incremental) {
+            List<File> valueDirs = new ArrayList<File>();
+            valueDirs.add(new File(res, DIR_VALUES));
+            valueDirs.addAll(langDirs);
+            manifest = ExportManifest.create(valueDirs, sAllowedFiles, mManifest, mChangedDirs);
+            mManifest = manifest;
+            if (exportIncremental(res, langDirs, manifest)) {
+                return;
+            }
+        }
+        List<Future<LangStrings>> parsedLangs = parseLangs(langDirs);
         Optional<File> defValuesDir = Arrays.stream(res.listFiles()).filter(i -> i.getName().equals(DIR_VALUES))
                 .findFirst();
         if (defValuesDir.isPresent()) {
             keysIndex = exportDefLang(defValuesDir.get());
         }
+        for (int i = 0; i < langDirs.size(); i++) {
+            exportLang(getLang(langDirs, parsedLangs, i), null);
+            checkpoint();
+        }
+        if (wb == null) {
+            return;
+        }
+        if (manifest != null) {
+            manifest.write(wb);
+        }
+        writeWorkbook();
+        wb.close();
+    }
+
+    /**
+     * Exports resource directories of all modules of the project, each of them into its own sheet. Languages of all
+     * modules are parsed concurrently when exporting with more threads.
+     */
+    private void exportModules(File projectDir) throws SAXException, IOException {
+        Map<String, File> resDirs = ResourceDirs.find(projectDir, sAllowedFiles);
+        if (resDirs.isEmpty()) {
+            System.err.println("Cannot find resource directory.");
+            return;
+        }
+        if (!SheetWriter.isWorkbook(outExcelFile)) {
+            System.err.println("Cannot export all modules into CSV, TSV or XLIFF file, use xls or xlsx file.");
+            return;
+        }
+        if (mConfig.streaming || mConfig.incremental) {
+            out.println("Streaming and incremental export don't support all modules, using in-memory workbook");
+        }
+        List<List<File>> langDirs = new ArrayList<List<File>>();
+        List<List<Future<LangStrings>>> parsedLangs = new ArrayList<List<Future<LangStrings>>>();
+        for (File res : resDirs.values()) {
+            List<File> dirs = findLangDirs(res);
+            langDirs.add(dirs);
+            parsedLangs.add(parseLangs(dirs));
+        }
+
+        int module = 0;
+        for (Map.Entry<String, File> res : resDirs.entrySet()) {
+            out.println();
+            out.println(String.format("Start processing module '%s' %s", res.getKey(), res.getValue().getPath()));
+            project = res.getKey();
+            keysIndex = exportDefLang(new File(res.getValue(), DIR_VALUES));
+            List<File> dirs = langDirs.get(module);
+            for (int i = 0; i < dirs.size(); i++) {
+                exportLang(getLang(dirs, parsedLangs.get(module), i), null);
+                checkpoint();
+            }
+            module++;
+        }
+        writeWorkbook();
+        wb.close();
+    }
+
+    /**
+     * Updates the previously exported workbook. Only languages with changed resource files are parsed and their
+     * columns written again, the rest of the workbook is kept.
+     *
+     * @return {@code false} if the workbook cannot be updated and all languages have to be exported
+     */
+    private boolean exportIncremental(File res, List<File> langDirs, ExportManifest manifest)
+        throws IOException, SAXException {
+        if (!outExcelFile.exists()) {
+            return false;
+        }
+        FileInputStream in = new FileInputStream(outExcelFile);
+        try {
+            wb = WorkbookFactory.create(in);
+        } finally {
+            in.close();
+        }
+
+        ExportManifest previous = ExportManifest.read(wb);
+        Sheet sheet = wb.getSheet(project);
+        long start = System.nanoTime();
+        List<List<ResourceEntry>> defFiles = new ArrayList<List<ResourceEntry>>();
+        File defValuesDir = new File(res, DIR_VALUES);
+        if (defValuesDir.isDirectory()) {
+            for (String fileName : sAllowedFiles) {
+                File stringFile = new File(defValuesDir, fileName);
+                if (stringFile.exists()) {
+                    defFiles.add(getDefEntries(stringFile));
+                }
+            }
+        }
+        mReport.addPhaseTime(PHASE_DEFAULT_LANG, start);
+        Map<String, Integer> langColumns = new HashMap<String, Integer>();
+        if (previous != null && sheet != null) {
+            keysIndex = matchDefLang(sheet, defFiles);
+            Row titleRow = sheet.getRow(0);
+            for (int i = 2; i < titleRow.getLastCellNum(); i++) {
+                langColumns.put(titleRow.getCell(i).getStringCellValue(), i);
+            }
+        }
+        Set<String> langs = new HashSet<String>();
+        for (File dir : langDirs) {
+            langs.add(getLangName(dir));
+        }
+        if (previous == null || sheet == null || keysIndex == null || !langs.containsAll(langColumns.keySet())) {
+            out.println("Rows or languages of the exported file were changed, exporting all languages");
+            wb.close();
+            wb = null;
+            keysIndex = null;
+            return false;
+        }
+
+        styles = new CellStyles(wb);
+        styles.useExisting(sheet);
+        if (!previous.isSame(manifest, DIR_VALUES)) {
+            out.println();
+            out.println("Updating DEFAULT language");
+            mUpdatedLangs.add("default");
+            int rowIndex = 1;
+            for (List<ResourceEntry> entries : defFiles) {
+                for (ResourceEntry entry : entries) {
+                    if (entry.hasValue()) {
+                        Cell cell = sheet.getRow(rowIndex).createCell(1);
+                        cell.setCellStyle(styles.get(CellStyles.Kind.TEXT));
+                        cell.setCellValue(defaultValue(entry));
+                    }
+                    rowIndex++;
+                }
+            }
+        }
+
+        List<File> changedDirs = new ArrayList<File>();
+        for (File dir : langDirs) {
+            String lang = getLangName(dir);
+            if (langColumns.containsKey(lang) && previous.isSame(manifest, dir.getName())) {
+                out.println(String.format("'%s' was not changed", lang));
+            } else {
+                changedDirs.add(dir);
+            }
+        }
+        List<Future<LangStrings>> parsedLangs = parseLangs(changedDirs);
+        for (int i = 0; i < changedDirs.size(); i++) {
+            LangStrings lang = getLang(changedDirs, parsedLangs, i);
+            Integer column = langColumns.get(lang.lang);
+            if (column != null) {
+                clearColumn(sheet, column);
+            }
+            exportLang(lang, column);
+        }
+
+        manifest.write(wb);
+        writeWorkbook();
+        wb.close();
+        return true;
+    }
+
+    /**
+     * Checks that the sheet has the same rows as the default language would have in a new export.
+     *
+     * @return row indexes by key or {@code null} if the rows don't match
+     */
+    private static KeyDictionary matchDefLang(Sheet sheet, List<List<ResourceEntry>> defFiles) {
+        KeyDictionary keys = new KeyDictionary();
+        List<String> rows = new ArrayList<String>();
+        // rows of the files follow each other, like in exportDefLang()
+        int rowIndex = 1;
+        for (List<ResourceEntry> entries : defFiles) {
+            for (ResourceEntry entry : entries) {
+                rows.add(keyCellValue(entry));
+                if (entry.hasValue()) {
+                    keys.put(entry.key, rowIndex);
+                }
+                rowIndex++;
+            }
+        }
+        if (sheet.getLastRowNum() != rows.size()) {
+            return null;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = sheet.getRow(i + 1);
+            Cell cell = row == null ? null : row.getCell(0);
+            if (cell == null || !rows.get(i).equals(cell.getStringCellValue())) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Removes cells of the language column. Cells following the last language column are removed as well.
+     */
+    private static void clearColumn(Sheet sheet, int column) {
+        boolean lastColumn = column == sheet.getRow(0).getLastCellNum() - 1;
+        for (int i = 1; i <= sheet.getLastRowNum(); i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) {
+                continue;
+            }
+            int lastCell = lastColumn ? row.getLastCellNum() - 1 : column;
+            for (int j = column; j <= lastCell; j++) {
+                Cell cell = row.getCell(j);
+                if (cell != null) {
+                    row.removeCell(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return directories of all languages except the default one, in the order they are exported
+     */
+    private static List<File> findLangDirs(File res) {
+        List<File> langDirs = new ArrayList<File>();
         for (File dir : res.listFiles()) {
             if (!dir.isDirectory() || !dir.getName().startsWith(DIR_VALUES)) {
                 continue;
@@ -82,9 +491,196 @@ public class ToolExport {
                 int index = dirName.indexOf('-');
                 if (index == -1)
                     continue;
-                String lang = dirName.substring(index + 1);
-                exportLang(lang, dir);
+                langDirs.add(dir);
+            }
+        }
+        return langDirs;
+    }
+
+    /**
+     * Starts parsing of all languages when exporting with more threads.
+     *
+     * @return parsed languages in the order of the directories, empty list for single threaded export
+     */
+    private List<Future<LangStrings>> parseLangs(List<File> langDirs) {
+        List<Future<LangStrings>> parsedLangs = new ArrayList<Future<LangStrings>>();
+        if (mExecutor == null) {
+            return parsedLangs;
+        }
+        for (final File dir : langDirs) {
+            parsedLangs.add(mExecutor.submit(() -> parseLang(dir)));
+        }
+        return parsedLangs;
+    }
+
+    /**
+     * Returns the language parsed in the background or parses it now when exporting with a single thread. Languages
+     * are always merged in the order of their directories, so the output doesn't depend on the number of threads.
+     */
+    private LangStrings getLang(List<File> langDirs, List<Future<LangStrings>> parsedLangs, int index)
+        throws IOException, SAXException {
+        long start = System.nanoTime();
+        try {
+            if (parsedLangs.isEmpty()) {
+                return parseLang(langDirs.get(index));
+            }
+            return parsedLangs.get(index).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        } finally {
+            // includes waiting for languages parsed in the background
+            mReport.addPhaseTime(PHASE_PARSE_LANGS, start);
+        }
+    }
+
+    private static String getLangName(File valueDir) {
+        String dirName = valueDir.getName();
+        return dirName.substring(dirName.indexOf('-') + 1);
+    }
+
+    private LangStrings parseLang(File valueDir) throws IOException, SAXException {
+        long start = System.nanoTime();
+        LangStrings strings = new LangStrings(getLangName(valueDir));
+        RunReport.LangMetrics metrics = mReport.lang(strings.lang);
+        for (String fileName : sAllowedFiles) {
+            File stringFile = new File(valueDir, fileName);
+            if (!stringFile.exists()) {
+                continue;
+            }
+            List<ResourceEntry> entries = getEntries(stringFile);
+            metrics.addRows(entries.size());
+            strings.add(stringFile, entries);
+        }
+        metrics.addTime(start);
+        return strings;
+    }
+
+    /**
+     * Writes the workbook after every {@link ExportConfig#checkpointInterval} exported languages, so that a partial
+     * result is available on disk while a long export is still running.
+     */
+    private void checkpoint() throws IOException {
+        exportedLangs++;
+        if (mConfig.checkpointInterval > 0 && exportedLangs % mConfig.checkpointInterval == 0) {
+            out.println("Writing checkpoint after " + exportedLangs + " languages");
+            writeWorkbook();
+        }
+    }
+
+    private void writeWorkbook() throws IOException {
+        long start = System.nanoTime();
+        FileOutputStream outFile = new FileOutputStream(outExcelFile);
+        try {
+            wb.write(outFile);
+        } finally {
+            outFile.close();
+        }
+        mReport.addBytesWritten(outExcelFile.length());
+        mReport.addPhaseTime(PHASE_WRITE_WORKBOOK, start);
+    }
+
+    /**
+     * Reads all languages first and then writes the sheet row by row with the writer.
+     */
+    private void exportStreaming(File res, SheetWriter writer) throws IOException, SAXException {
+        List<File> langDirs = findLangDirs(res);
+        List<Future<LangStrings>> parsedLangs = parseLangs(langDirs);
+        long start = System.nanoTime();
+        List<ResourceEntry> rows = new ArrayList<ResourceEntry>();
+        File defValuesDir = new File(res, DIR_VALUES);
+        if (defValuesDir.isDirectory()) {
+            rows = readDefLang(defValuesDir);
+        }
+        mReport.addRows(rows.size());
+        mReport.addPhaseTime(PHASE_DEFAULT_LANG, start);
+        mUpdatedLangs.add("default");
+        Set<String> keys = new HashSet<String>();
+        for (ResourceEntry row : rows) {
+            if (row.hasValue()) {
+                keys.add(row.key);
+            }
+        }
+
+        List<LangStrings> langs = new ArrayList<LangStrings>();
+        for (int i = 0; i < langDirs.size(); i++) {
+            LangStrings lang = getLang(langDirs, parsedLangs, i);
+            if (lang.files.isEmpty()) {
+                // e.g. values-v21, no column like in exportLang()
+                continue;
             }
+            reportLang(lang, keys);
+            langs.add(lang);
+            mUpdatedLangs.add(lang.lang);
+        }
+
+        start = System.nanoTime();
+        mReport.addCells(writer.write(outExcelFile, project, rows, langs));
+        for (File file : writer.getFiles(outExcelFile, langs)) {
+            mReport.addBytesWritten(file.length());
+        }
+        mReport.addPhaseTime(PHASE_WRITE_WORKBOOK, start);
+    }
+
+    private List<ResourceEntry> readDefLang(File valueDir) throws IOException, SAXException {
+        List<ResourceEntry> rows = new ArrayList<ResourceEntry>();
+        for (String fileName : sAllowedFiles) {
+            File stringFile = new File(valueDir, fileName);
+            if (!stringFile.exists()) {
+                continue;
+            }
+            out.println();
+            out.println("Start processing DEFAULT language " + stringFile.getName());
+            rows.addAll(getDefEntries(stringFile));
+            out.println("DEFAULT language was precessed");
+        }
+        return rows;
+    }
+
+    private void reportLang(LangStrings lang, Set<String> keys) {
+        RunReport.LangMetrics metrics = mReport.lang(lang.lang);
+        int unknownKeys = 0;
+        for (Map.Entry<File, List<ResourceEntry>> file : lang.files.entrySet()) {
+            out.println();
+            out.println(String.format("Start processing: '%s' %s", lang.lang, file.getKey().getName()));
+            for (ResourceEntry entry : file.getValue()) {
+                if (entry.hasValue() && !keys.contains(entry.key)) {
+                    metrics.addUnknownKey(entry.key);
+                    unknownKeys++;
+                }
+            }
+        }
+
+        List<String> missedKeys = new ArrayList<String>();
+        for (String key : keys) {
+            if (!lang.values.containsKey(key)) {
+                missedKeys.add(key);
+            }
+        }
+        printMissedKeys(lang.lang, missedKeys, unknownKeys);
+    }
+
+    /**
+     * Prints counts of the keys, the keys themselves are listed in the report.
+     */
+    private void printMissedKeys(String lang, Collection<String> missedKeys, int unknownKeys) {
+        mReport.lang(lang).addMissingKeys(missedKeys);
+        String unknown = unknownKeys == 0 ? "" : String.format(", UNKNOWN KEYS - %d", unknownKeys);
+        if (missedKeys.isEmpty()) {
+            out.println(String.format("'%s' was processed%s", lang, unknown));
+        } else {
+            out.println(String.format("'%s' was processed with MISSED KEYS - %d%s", lang, missedKeys.size(),
+                unknown));
         }
     }
 
@@ -102,375 +698,318 @@ public class ToolExport {
         return null;
     }
 
-    private void exportLang(String lang, File valueDir) throws IOException, SAXException {
-        for (String fileName : sAllowedFiles) {
-            File stringFile = new File(valueDir, fileName);
-            if (!stringFile.exists()) {
-                continue;
+    /**
+     * @param column column of the language, {@code null} to add a new column
+     */
+    private void exportLang(LangStrings lang, Integer column) {
+        long start = System.nanoTime();
+        Sheet sheet = wb.getSheet(project);
+        // keys missing in all files of the language
+        BitSet missedKeys = keysIndex.all();
+        int unknownKeys = 0;
+        int langColumn = -1;
+        for (Map.Entry<File, List<ResourceEntry>> file : lang.files.entrySet()) {
+            langColumn = column != null ? column : addLang2Tilte(sheet, lang.lang);
+            unknownKeys += exportLangToExcel(sheet, lang.lang, file.getKey(), file.getValue(), missedKeys,
+                langColumn);
+        }
+        if (langColumn != -1) {
+            mUpdatedLangs.add(lang.lang);
+            markMissedKeys(sheet, missedKeys, langColumn);
+            List<String> missedKeyNames = new ArrayList<String>(missedKeys.cardinality());
+            for (int id = missedKeys.nextSetBit(0); id >= 0; id = missedKeys.nextSetBit(id + 1)) {
+                missedKeyNames.add(keysIndex.getKey(id));
             }
-            exportLangToExcel(project, lang, stringFile, getStrings(stringFile), outExcelFile, keysIndex);
+            printMissedKeys(lang.lang, missedKeyNames, unknownKeys);
         }
+        mReport.lang(lang.lang).addTime(start);
+        mReport.addPhaseTime(PHASE_FILL_SHEET, start);
     }
 
-    private Map<String, Integer> exportDefLang(File valueDir) throws IOException, SAXException {
-        Map<String, Integer> keys = new HashMap<String, Integer>();
-        Workbook wb = WorkbookFactory.create(outExcelFile.getName().endsWith("x"));
+    private KeyDictionary exportDefLang(File valueDir) throws IOException, SAXException {
+        long start = System.nanoTime();
+        KeyDictionary keys = new KeyDictionary();
+        if (wb == null) {
+            wb = WorkbookFactory.create(outExcelFile.getName().endsWith("x"));
+            styles = new CellStyles(wb);
+        }
 
         Sheet sheet;
         sheet = wb.createSheet(project);
         int rowIndex = 0;
         sheet.createRow(rowIndex++);
-        createTilte(wb, sheet);
-        addLang2Tilte(wb, sheet, "default");
+        createTilte(sheet);
+        addLang2Tilte(sheet, "default");
         sheet.createFreezePane(1, 1);
-
-        FileOutputStream outFile = new FileOutputStream(outExcelFile);
-        wb.write(outFile);
-        outFile.close();
+        mUpdatedLangs.add("default");
 
         for (String fileName : sAllowedFiles) {
             File stringFile = new File(valueDir, fileName);
             if (!stringFile.exists()) {
                 continue;
             }
-            keys.putAll(exportDefLangToExcel(rowIndex, project, stringFile, getStrings(stringFile), outExcelFile));
+            rowIndex = exportDefLangToExcel(rowIndex, project, stringFile, getDefEntries(stringFile), keys);
         }
 
-
+        mReport.addPhaseTime(PHASE_DEFAULT_LANG, start);
         return keys;
     }
 
-    private NodeList getStrings(File f) throws SAXException, IOException {
-        Document dom = builder.parse(f);
-        return dom.getDocumentElement().getChildNodes();
-    }
-
-    private static CellStyle createTitleStyle(Workbook wb) {
-        Font bold = wb.createFont();
-        bold.setBold(true);
-
-        CellStyle style = wb.createCellStyle();
-        style.setFont(bold);
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        style.setWrapText(true);
+    /**
+     * @return entries of the resource file, from the cache if the file was not changed
+     */
+    private List<ResourceEntry> getEntries(File f) throws SAXException, IOException {
+        // parsed content, digested and cached together with the entries
+        ParseCache.Snapshot snapshot = null;
+        if (mParsed != null) {
+            ParsedFile parsed = mParsed.get(f.getPath());
+            if (parsed != null && mChangedDirs != null && !mChangedDirs.contains(f.getParentFile().getName())) {
+                return parsed.entries;
+            }
+            snapshot = ParseCache.Snapshot.of(f);
+            if (parsed != null && Arrays.equals(parsed.digest, snapshot.digest)) {
+                return parsed.entries;
+            }
+        }
+        if (mCache != null) {
+            List<ResourceEntry> cached = mCache.get(f);
+            if (cached != null) {
+                if (mParsed != null) {
+                    mParsed.put(f.getPath(), new ParsedFile(snapshot.digest, cached));
+                }
+                return cached;
+            }
+            if (snapshot == null) {
+                snapshot = ParseCache.Snapshot.of(f);
+            }
+        }
+        mReport.addBytesRead(snapshot != null ? snapshot.content.length : f.length());
+        final List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        ResourceReader.Handler handler = new ResourceReader.Handler() {
 
-        return style;
-    }
+            private String mName;
+            private int mIndex;
 
-    private static CellStyle createCommentStyle(Workbook wb) {
+            @Override
+            public void onComment(String text) {
+                entries.add(ResourceEntry.comment(text));
+            }
 
-        Font commentFont = wb.createFont();
-        commentFont.setColor(IndexedColors.GREEN.getIndex());
-        commentFont.setItalic(true);
-        commentFont.setFontHeightInPoints((short) 12);
+            @Override
+            public void onString(String name, String value, boolean cdata) {
+                String key = cdata ? name + "!cdata" : name;
+                entries.add(new ResourceEntry(ResourceEntry.Type.STRING, name, key, value));
+            }
 
-        CellStyle commentStyle = wb.createCellStyle();
-        commentStyle.setFont(commentFont);
-        return commentStyle;
-    }
+            @Override
+            public void onPluralsStart(String name) {
+                mName = name;
+                entries.add(new ResourceEntry(ResourceEntry.Type.PLURALS, name, name, null));
+            }
 
-    private static CellStyle createPlurarStyle(Workbook wb) {
+            @Override
+            public void onPluralsItem(String quantity, String value) {
+                entries.add(new ResourceEntry(ResourceEntry.Type.PLURALS_ITEM, mName, mName + "#" + quantity,
+                    value));
+            }
 
-        Font commentFont = wb.createFont();
-        commentFont.setColor(IndexedColors.GREY_50_PERCENT.getIndex());
-        commentFont.setItalic(true);
-        commentFont.setFontHeightInPoints((short)12);
+            @Override
+            public void onStringArrayStart(String name) {
+                mName = name;
+                mIndex = 0;
+            }
 
-        CellStyle commentStyle = wb.createCellStyle();
-        commentStyle.setFont(commentFont);
-        return commentStyle;
+            @Override
+            public void onStringArrayItem(String value) {
+                entries.add(new ResourceEntry(ResourceEntry.Type.ARRAY_ITEM, mName, mName + "[" + mIndex++ + "]",
+                    value));
+            }
+        };
+        try {
+            if (snapshot != null) {
+                reader.get().read(f, snapshot.content, handler);
+            } else {
+                reader.get().read(f, handler);
+            }
+        } catch (XMLStreamException e) {
+            throw new SAXException("Cannot parse " + f, e);
+        }
+        if (mCache != null) {
+            mCache.put(f, snapshot, entries);
+        }
+        if (mParsed != null) {
+            mParsed.put(f.getPath(), new ParsedFile(snapshot.digest, entries));
+        }
+        return entries;
     }
 
-    private static CellStyle createKeyStyle(Workbook wb) {
-        Font bold = wb.createFont();
-        bold.setBold(true);
-        bold.setFontHeightInPoints((short)11);
-
-        CellStyle keyStyle = wb.createCellStyle();
-        keyStyle.setFont(bold);
-
-        return keyStyle;
+    /**
+     * @return entries of default language without the ignored keys
+     */
+    private List<ResourceEntry> getDefEntries(File f) throws SAXException, IOException {
+        List<ResourceEntry> entries = new ArrayList<ResourceEntry>();
+        for (ResourceEntry entry : getEntries(f)) {
+            if (entry.type == ResourceEntry.Type.STRING && mConfig.isIgnoredKey(entry.key)) {
+                continue;
+            }
+            if (entry.type != ResourceEntry.Type.STRING && entry.type != ResourceEntry.Type.COMMENT
+                && mConfig.isIgnoredKey(entry.name)) {
+                continue;
+            }
+            entries.add(entry);
+        }
+        return entries;
     }
 
-    private static CellStyle createTextStyle(Workbook wb) {
-        Font plain = wb.createFont();
-        plain.setFontHeightInPoints((short)12);
-
-        CellStyle textStyle = wb.createCellStyle();
-        textStyle.setFont(plain);
-
-        return textStyle;
+    /**
+     * @return value of the first column of the row
+     */
+    static String keyCellValue(ResourceEntry entry) {
+        if (entry.type == ResourceEntry.Type.COMMENT) {
+            return String.format("/** %s **/", entry.value);
+        } else if (entry.type == ResourceEntry.Type.PLURALS) {
+            return String.format("//plurals: %s", entry.name);
+        }
+        return entry.key;
     }
 
-    private static CellStyle createMissedStyle(Workbook wb) {
-
-        CellStyle style = wb.createCellStyle();
-        style.setFillForegroundColor(IndexedColors.RED.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-        return style;
+    static String defaultValue(ResourceEntry entry) {
+        if (entry.type == ResourceEntry.Type.STRING) {
+            return entry.value.replace("\\'", "'").replace("\\\"", "\"");
+        }
+        return entry.value;
     }
 
-    private static void createTilte(Workbook wb, Sheet sheet) {
+    private void createTilte(Sheet sheet) {
         Row titleRow = sheet.getRow(0);
 
         Cell cell = titleRow.createCell(0);
-        cell.setCellStyle(createTitleStyle(wb));
+        cell.setCellStyle(styles.get(CellStyles.Kind.TITLE));
         cell.setCellValue("KEY");
 
         sheet.setColumnWidth(cell.getColumnIndex(), (40 * 256));
     }
 
-    private static void addLang2Tilte(Workbook wb, Sheet sheet, String lang) {
+    /**
+     * @return index of the language column
+     */
+    private int addLang2Tilte(Sheet sheet, String lang) {
         Row titleRow = sheet.getRow(0);
         Cell lastCell = titleRow.getCell((int) titleRow.getLastCellNum() - 1);
         if (lang.equals(lastCell.getStringCellValue())) {
             // language column already exists
-            return;
+            return lastCell.getColumnIndex();
         }
         Cell cell = titleRow.createCell((int)titleRow.getLastCellNum());
-        cell.setCellStyle(createTitleStyle(wb));
+        cell.setCellStyle(styles.get(CellStyles.Kind.TITLE));
         cell.setCellValue(lang);
 
         sheet.setColumnWidth(cell.getColumnIndex(), (60 * 256));
+        return cell.getColumnIndex();
     }
 
 
-    private Map<String, Integer> exportDefLangToExcel(int rowIndex, String project, File src, NodeList strings, File f) throws IOException {
+    /**
+     * Writes the default language from the row and adds its keys to the dictionary.
+     *
+     * @return index of the row following the rows of the file
+     */
+    private int exportDefLangToExcel(int rowIndex, String project, File src, List<ResourceEntry> entries,
+                                     KeyDictionary keys) {
         out.println();
         out.println("Start processing DEFAULT language " + src.getName());
+        int cells = 0;
 
-        Map<String, Integer> keys = new HashMap<String, Integer>();
-
-        Workbook wb = WorkbookFactory.create(new FileInputStream(f));
-
-        CellStyle commentStyle = createCommentStyle(wb);
-        CellStyle plurarStyle = createPlurarStyle(wb);
-        CellStyle keyStyle = createKeyStyle(wb);
-        CellStyle textStyle = createTextStyle(wb);
+        CellStyle commentStyle = styles.get(CellStyles.Kind.COMMENT);
+        CellStyle plurarStyle = styles.get(CellStyles.Kind.PLURALS);
+        CellStyle keyStyle = styles.get(CellStyles.Kind.KEY);
+        CellStyle textStyle = styles.get(CellStyles.Kind.TEXT);
 
         Sheet sheet = wb.getSheet(project);
 
 
-        for (int i = 0; i < strings.getLength(); i++) {
-            Node item = strings.item(i);
-            if (item.getNodeType() == Node.TEXT_NODE) {
-
-            }
-            if (item.getNodeType() == Node.COMMENT_NODE) {
+        for (ResourceEntry entry : entries) {
+            if (entry.type == ResourceEntry.Type.COMMENT) {
                 Row row = sheet.createRow(rowIndex++);
                 Cell cell = row.createCell(0);
-                cell.setCellValue(String.format("/** %s **/", item.getTextContent()));
+                cell.setCellValue(keyCellValue(entry));
                 cell.setCellStyle(commentStyle);
 
                 sheet.addMergedRegion(new CellRangeAddress(row.getRowNum(), row.getRowNum(), 0, 255));
-            }
-
-            if ("string".equals(item.getNodeName())) {
-                Node translatable = item.getAttributes().getNamedItem("translatable");
-                if (translatable != null && "false".equals(translatable.getNodeValue())) {
-                    continue;
-                }
-
-                String key = getKey(item);
-                if (mConfig.isIgnoredKey(key)) {
-                    continue;
-                }
-                keys.put(key, rowIndex);
+            } else if (entry.type == ResourceEntry.Type.PLURALS) {
+                Row row = sheet.createRow(rowIndex++);
+                Cell cell = row.createCell(0);
+                cell.setCellValue(keyCellValue(entry));
+                cell.setCellStyle(plurarStyle);
+            } else {
+                keys.put(entry.key, rowIndex);
+                cells++;
 
                 Row row = sheet.createRow(rowIndex++);
 
                 Cell cell = row.createCell(0);
-                cell.setCellValue(key);
+                cell.setCellValue(entry.key);
                 cell.setCellStyle(keyStyle);
 
                 cell = row.createCell(1);
                 cell.setCellStyle(textStyle);
-                cell.setCellValue(item.getTextContent().replace("\\'", "'").replace("\\\"", "\""));
-            } else if ("plurals".equals(item.getNodeName())) {
-                String key = item.getAttributes().getNamedItem("name").getNodeValue();
-                if (mConfig.isIgnoredKey(key)) {
-                    continue;
-                }
-                String pluralName = key;
-
-                Row row = sheet.createRow(rowIndex++);
-                Cell cell = row.createCell(0);
-                cell.setCellValue(String.format("//plurals: %s", pluralName));
-                cell.setCellStyle(plurarStyle);
-
-                NodeList items = item.getChildNodes();
-                for (int j = 0; j < items.getLength(); j++) {
-                    Node plurarItem = items.item(j);
-                    if ("item".equals(plurarItem.getNodeName())) {
-                        String itemKey = pluralName + "#" + plurarItem.getAttributes().getNamedItem("quantity").getNodeValue();
-                        keys.put(itemKey, rowIndex);
-
-                        Row itemRow = sheet.createRow(rowIndex++);
-
-                        Cell itemCell = itemRow.createCell(0);
-                        itemCell.setCellValue(itemKey);
-                        itemCell.setCellStyle(keyStyle);
-
-                        itemCell = itemRow.createCell(1);
-                        itemCell.setCellStyle(textStyle);
-                        itemCell.setCellValue(plurarItem.getTextContent());
-                    }
-                }
-            } else if ("string-array".equals(item.getNodeName())) {
-                String key = item.getAttributes().getNamedItem("name").getNodeValue();
-                if (mConfig.isIgnoredKey(key)) {
-                    continue;
-                }
-                NodeList arrayItems = item.getChildNodes();
-                for (int j = 0, k = 0; j < arrayItems.getLength(); j++) {
-                    Node arrayItem = arrayItems.item(j);
-                    if ("item".equals(arrayItem.getNodeName())) {
-                        String itemKey = key + "[" + k++ + "]";
-                        keys.put(itemKey, rowIndex);
-
-                        Row itemRow = sheet.createRow(rowIndex++);
-
-                        Cell itemCell = itemRow.createCell(0);
-                        itemCell.setCellValue(itemKey);
-                        itemCell.setCellStyle(keyStyle);
-
-                        itemCell = itemRow.createCell(1);
-                        itemCell.setCellStyle(textStyle);
-                        itemCell.setCellValue(arrayItem.getTextContent());
-                    }
-                }
+                cell.setCellValue(defaultValue(entry));
             }
         }
 
-        FileOutputStream outFile = new FileOutputStream(f);
-        wb.write(outFile);
-        outFile.close();
-
+        mReport.addRows(entries.size());
+        mReport.addCells(cells);
         out.println("DEFAULT language was precessed");
-        return keys;
+        return rowIndex;
     }
 
-    private void exportLangToExcel(String project, String lang, File src, NodeList strings, File f, Map<String, Integer> keysIndex) throws IOException {
+    /**
+     * Writes values of a single file of the language and removes their keys from the missed keys.
+     *
+     * @return number of keys which don't exist in the default language
+     */
+    private int exportLangToExcel(Sheet sheet, String lang, File src, List<ResourceEntry> entries,
+                                  BitSet missedKeys, int column) {
         out.println();
         out.println(String.format("Start processing: '%s' %s", lang, src.getName()));
-        Set<String> missedKeys = new HashSet<String>(keysIndex.keySet());
-
-        Workbook wb = WorkbookFactory.create(new FileInputStream(f));
-
-        CellStyle textStyle = createTextStyle(wb);
-
-        Sheet sheet = wb.getSheet(project);
-        addLang2Tilte(wb, sheet, lang);
-
-        Row titleRow = sheet.getRow(0);
-        int lastColumnIdx = (int)titleRow.getLastCellNum() - 1;
-
-        for (int i = 0; i < strings.getLength(); i++) {
-            Node item = strings.item(i);
-
-            if ("string".equals(item.getNodeName())) {
-                Node translatable = item.getAttributes().getNamedItem("translatable");
-                if (translatable != null && "false".equals(translatable.getNodeValue())) {
-                    continue;
-                }
-                String key = getKey(item);
-                Integer index = keysIndex.get(key);
-                if (index == null) {
-                    out.println("\t" + key + " - row does not exist");
+        RunReport.LangMetrics metrics = mReport.lang(lang);
+        int unknownKeys = 0;
+        int cells = 0;
+
+        CellStyle textStyle = styles.get(CellStyles.Kind.TEXT);
+
+        for (ResourceEntry entry : entries) {
+            if (entry.type == ResourceEntry.Type.STRING || entry.type == ResourceEntry.Type.PLURALS_ITEM
+                || entry.type == ResourceEntry.Type.ARRAY_ITEM) {
+                int id = keysIndex.getId(entry.key);
+                if (id == -1) {
+                    metrics.addUnknownKey(entry.key);
+                    unknownKeys++;
                     continue;
                 }
+                missedKeys.clear(id);
 
-                missedKeys.remove(key);
-                Row row = sheet.getRow(index);
-
-                Cell cell = row.createCell(lastColumnIdx);
-                cell.setCellValue(item.getTextContent());
+                Cell cell = sheet.getRow(keysIndex.getRow(id)).createCell(column);
+                cell.setCellValue(entry.value);
                 cell.setCellStyle(textStyle);
-            } else if ("plurals".equals(item.getNodeName())) {
-                String key = item.getAttributes().getNamedItem("name").getNodeValue();
-                String plurarName = key;
-
-                NodeList items = item.getChildNodes();
-                for (int j = 0; j < items.getLength(); j++) {
-                    Node pluralItem = items.item(j);
-                    if ("item".equals(pluralItem.getNodeName())) {
-                        key = plurarName + "#" + pluralItem.getAttributes().getNamedItem("quantity").getNodeValue();
-                        Integer index = keysIndex.get(key);
-                        if (index == null) {
-                            out.println("\t" + key + " - row does not exist");
-                            continue;
-                        }
-                        missedKeys.remove(key);
-
-                        Row row = sheet.getRow(index);
-
-                        Cell cell = row.createCell(lastColumnIdx);
-                        cell.setCellValue(pluralItem.getTextContent());
-                        cell.setCellStyle(textStyle);
-                    }
-                }
-            } else if ("string-array".equals(item.getNodeName())) {
-                String key = item.getAttributes().getNamedItem("name").getNodeValue();
-                NodeList arrayItems = item.getChildNodes();
-                for (int j = 0, k = 0; j < arrayItems.getLength(); j++) {
-                    Node arrayItem = arrayItems.item(j);
-                    if ("item".equals(arrayItem.getNodeName())) {
-                        String itemKey = key + "[" + k++ + "]";
-                        Integer rowIndex = keysIndex.get(itemKey);
-                        if (rowIndex == null) {
-                            out.println("\t" + key + " - row does not exist");
-                            continue;
-                        }
-                        missedKeys.remove(key);
-
-                        Row itemRow = sheet.getRow(rowIndex);
-
-                        Cell cell = itemRow.createCell(lastColumnIdx);
-                        cell.setCellValue(arrayItem.getTextContent());
-                        cell.setCellStyle(textStyle);
-                    }
-                }
+                cells++;
             }
         }
 
-        CellStyle missedStyle = createMissedStyle(wb);
-
-        if (!missedKeys.isEmpty()) {
-            out.println("  MISSED KEYS:");
-        }
-        for (String missedKey : missedKeys) {
-            out.println("\t" + missedKey);
-            Integer index = keysIndex.get(missedKey);
-            Row row = sheet.getRow(index);
-            Cell cell = row.createCell((int)row.getLastCellNum());
-            cell.setCellStyle(missedStyle);
-        }
-
-        FileOutputStream outStream = new FileOutputStream(f);
-        wb.write(outStream);
-        outStream.close();
-
-        if (missedKeys.isEmpty()) {
-            out.println(String.format("'%s' was processed", lang));
-        } else {
-            out.println(String.format("'%s' was processed with MISSED KEYS - %d", lang, missedKeys.size()));
-        }
+        metrics.addCells(cells);
+        mReport.addCells(cells);
+        return unknownKeys;
     }
 
-    private String getKey(Node item) {
-        String key = item.getAttributes().getNamedItem("name").getNodeValue();
-        NodeList nodes = item.getChildNodes();
-        if (nodes.getLength() == 0) {
-            throw new IllegalArgumentException("Unpredictable node format at " + item);
-        }
-        Node text = nodes.item(0);
-        if (text.getNodeType() == Node.CDATA_SECTION_NODE) {
-            key += "!cdata";
+    private void markMissedKeys(Sheet sheet, BitSet missedKeys, int column) {
+        CellStyle missedStyle = styles.get(CellStyles.Kind.MISSED);
+        for (int id = missedKeys.nextSetBit(0); id >= 0; id = missedKeys.nextSetBit(id + 1)) {
+            Row row = sheet.getRow(keysIndex.getRow(id));
+            Cell cell = row.getCell(column);
+            if (cell == null) {
+                cell = row.createCell(column);
+            }
+            cell.setCellStyle(missedStyle);
         }
-
-        return key;
     }
 }
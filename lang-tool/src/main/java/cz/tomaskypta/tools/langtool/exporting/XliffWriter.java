@@ -0,0 +1,251 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import cz.tomaskypta.tools.langtool.util.LanguageTags;
+
+/**
+ * Writes exported strings into XLIFF 2.0 files, one file per language named {@code <name>_<language>.xlf} after the
+ * output file. Without languages only the output file with the default language is written.
+ * <p>
+ * Every row with a value is a unit named by its key, e.g. {@code name#quantity} or {@code name[index]}, with the
+ * default value as source and the value of the language as target. Items of plurals are grouped in a group named
+ * after the plurals. Comments are written as notes of the following unit or group, comments at the end as notes of
+ * the file.
+ */
+class XliffWriter implements SheetWriter {
+
+    private static final String NAMESPACE = "urn:oasis:names:tc:xliff:document:2.0";
+    private static final String NOTE_CATEGORY_COMMENT = "comment";
+    /**
+     * Language of the default values, Android doesn't define it.
+     */
+    private static final String SOURCE_LANGUAGE = "en";
+    /**
+     * Factories are not thread-safe, every thread writing files has its own.
+     */
+    private static final ThreadLocal<XMLOutputFactory> factory = ThreadLocal.withInitial(XMLOutputFactory::newInstance);
+
+    private final ExecutorService mExecutor;
+
+    /**
+     * @param executor executor writing the languages concurrently, {@code null} to write them one by one
+     */
+    XliffWriter(ExecutorService executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * @return {@code true} for XLIFF files
+     */
+    static boolean isXliff(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".xlf") || name.endsWith(".xliff");
+    }
+
+    @Override
+    public int write(final File outFile, final String sheetName, final List<ResourceEntry> rows,
+                     List<LangStrings> langs) throws IOException {
+        if (langs.isEmpty()) {
+            return writeFile(outFile, sheetName, rows, null);
+        }
+        if (mExecutor == null) {
+            int cells = 0;
+            for (LangStrings lang : langs) {
+                cells += writeFile(getLangFile(outFile, lang), sheetName, rows, lang);
+            }
+            return cells;
+        }
+
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(langs.size());
+        for (final LangStrings lang : langs) {
+            futures.add(mExecutor.submit(() -> writeFile(getLangFile(outFile, lang), sheetName, rows, lang)));
+        }
+        int cells = 0;
+        for (Future<Integer> future : futures) {
+            try {
+                cells += future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export was interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
+            }
+        }
+        return cells;
+    }
+
+    @Override
+    public List<File> getFiles(File outFile, List<LangStrings> langs) {
+        List<File> files = new ArrayList<File>();
+        if (langs.isEmpty()) {
+            files.add(outFile);
+        }
+        for (LangStrings lang : langs) {
+            files.add(getLangFile(outFile, lang));
+        }
+        return files;
+    }
+
+    private static File getLangFile(File outFile, LangStrings lang) {
+        String name = outFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(outFile.getParentFile(), name.substring(0, dot) + "_" + lang.lang + name.substring(dot));
+    }
+
+    /**
+     * @param lang target language, {@code null} to write only the default language
+     * @return number of written values, including the default ones
+     */
+    private int writeFile(File file, String sheetName, List<ResourceEntry> rows, LangStrings lang) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            XMLStreamWriter writer = factory.get().createXMLStreamWriter(out, "UTF-8");
+            int cells = writeDocument(writer, sheetName, rows, lang);
+            writer.close();
+            return cells;
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write " + file, e);
+        } finally {
+            out.close();
+        }
+    }
+
+    private int writeDocument(XMLStreamWriter writer, String sheetName, List<ResourceEntry> rows, LangStrings lang)
+        throws XMLStreamException {
+        int cells = 0;
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeCharacters("\n");
+        writer.writeStartElement("xliff");
+        writer.writeDefaultNamespace(NAMESPACE);
+        writer.writeAttribute("version", "2.0");
+        writer.writeAttribute("srcLang", SOURCE_LANGUAGE);
+        if (lang != null) {
+            writer.writeAttribute("trgLang", LanguageTags.toLanguageTag(lang.lang));
+        }
+        indent(writer, 1);
+        writer.writeStartElement("file");
+        writer.writeAttribute("id", "f1");
+        writer.writeAttribute("original", sheetName);
+        // values are translated including leading and trailing whitespace
+        writer.writeAttribute("xml", "http://www.w3.org/XML/1998/namespace", "space", "preserve");
+
+        // comments not followed by any value
+        int lastValue = rows.size() - 1;
+        while (lastValue >= 0 && rows.get(lastValue).type == ResourceEntry.Type.COMMENT) {
+            lastValue--;
+        }
+        writeNotes(writer, rows.subList(lastValue + 1, rows.size()), 2);
+
+        List<ResourceEntry> comments = new ArrayList<ResourceEntry>();
+        boolean group = false;
+        int unitId = 0;
+        int groupId = 0;
+        for (int i = 0; i <= lastValue; i++) {
+            ResourceEntry entry = rows.get(i);
+            if (group && entry.type != ResourceEntry.Type.PLURALS_ITEM) {
+                indent(writer, 2);
+                writer.writeEndElement();
+                group = false;
+            }
+            switch (entry.type) {
+                case COMMENT:
+                    comments.add(entry);
+                    break;
+                case PLURALS:
+                    indent(writer, 2);
+                    writer.writeStartElement("group");
+                    writer.writeAttribute("id", "g" + ++groupId);
+                    writer.writeAttribute("name", entry.name);
+                    writeNotes(writer, comments, 3);
+                    comments.clear();
+                    group = true;
+                    break;
+                default:
+                    int depth = group ? 3 : 2;
+                    indent(writer, depth);
+                    writer.writeStartElement("unit");
+                    writer.writeAttribute("id", "u" + ++unitId);
+                    writer.writeAttribute("name", entry.key);
+                    writeNotes(writer, comments, depth + 1);
+                    comments.clear();
+                    indent(writer, depth + 1);
+                    writer.writeStartElement("segment");
+                    indent(writer, depth + 2);
+                    writer.writeStartElement("source");
+                    writer.writeCharacters(ToolExport.defaultValue(entry));
+                    writer.writeEndElement();
+                    cells++;
+                    String value = lang == null ? null : lang.values.get(entry.key);
+                    if (value != null) {
+                        indent(writer, depth + 2);
+                        writer.writeStartElement("target");
+                        writer.writeCharacters(value);
+                        writer.writeEndElement();
+                        cells++;
+                    }
+                    indent(writer, depth + 1);
+                    writer.writeEndElement();
+                    indent(writer, depth);
+                    writer.writeEndElement();
+                    break;
+            }
+        }
+        if (group) {
+            indent(writer, 2);
+            writer.writeEndElement();
+        }
+
+        indent(writer, 1);
+        writer.writeEndElement();
+        indent(writer, 0);
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        writer.writeEndDocument();
+        return cells;
+    }
+
+    private static void writeNotes(XMLStreamWriter writer, List<ResourceEntry> comments, int depth)
+        throws XMLStreamException {
+        if (comments.isEmpty()) {
+            return;
+        }
+        indent(writer, depth);
+        writer.writeStartElement("notes");
+        for (ResourceEntry comment : comments) {
+            indent(writer, depth + 1);
+            writer.writeStartElement("note");
+            writer.writeAttribute("category", NOTE_CATEGORY_COMMENT);
+            writer.writeCharacters(comment.value);
+            writer.writeEndElement();
+        }
+        indent(writer, depth);
+        writer.writeEndElement();
+    }
+
+    private static void indent(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            writer.writeCharacters("  ");
+        }
+    }
+}
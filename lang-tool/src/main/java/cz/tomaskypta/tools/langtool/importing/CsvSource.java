@@ -0,0 +1,164 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Import source streaming CSV or TSV file as defined by RFC 4180, in UTF-8. Only the current record is kept in
+ * memory, so files of any size can be imported.
+ * <p>
+ * Empty fields are read as missing cells, empty quoted fields as empty values. Sheet name is the name of the file
+ * without extension.
+ */
+public class CsvSource implements ImportSource {
+
+    private static final char QUOTE = '"';
+    private static final char BOM = '\uFEFF';
+
+    private final File mFile;
+    private final char mSeparator;
+    private final String mSheetName;
+
+    public CsvSource(File file, char separator) {
+        mFile = file;
+        mSeparator = separator;
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        mSheetName = dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Override
+    public String getSheetName() {
+        return mSheetName;
+    }
+
+    @Override
+    public void readRows(RowHandler handler) throws IOException {
+        RecordReader reader = new RecordReader(new InputStreamReader(new FileInputStream(mFile),
+            StandardCharsets.UTF_8));
+        try {
+            List<String> cells = new ArrayList<String>();
+            int rowNum = 0;
+            while (reader.readRecord(cells)) {
+                // empty lines are missing rows
+                if ((cells.size() > 1 || cells.get(0) != null)
+                    && !handler.onRow(rowNum, cells.toArray(new String[cells.size()]))) {
+                    return;
+                }
+                rowNum++;
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        // the file is opened only while reading rows
+    }
+
+    /**
+     * Reads records of the file through its own buffer, one character at a time.
+     */
+    private class RecordReader {
+
+        private final Reader mIn;
+        private final char[] mBuffer = new char[8192];
+        private final StringBuilder mField = new StringBuilder();
+        private int mPosition;
+        private int mLength;
+        private int mNext;
+        private int mRecord;
+
+        RecordReader(Reader in) throws IOException {
+            mIn = in;
+            mNext = read();
+            if (mNext == BOM) {
+                mNext = read();
+            }
+        }
+
+        /**
+         * Reads the next record, values of its fields are added into the cells.
+         *
+         * @return {@code false} at the end of the file
+         */
+        boolean readRecord(List<String> cells) throws IOException {
+            cells.clear();
+            if (mNext == -1) {
+                return false;
+            }
+            int c = mNext;
+            while (true) {
+                mField.setLength(0);
+                boolean quoted = c == QUOTE;
+                if (quoted) {
+                    c = readQuoted();
+                }
+                // characters after closing quote are kept, like spreadsheet applications do
+                while (c != mSeparator && c != '\r' && c != '\n' && c != -1) {
+                    mField.append((char) c);
+                    c = read();
+                }
+                cells.add(quoted || mField.length() > 0 ? mField.toString() : null);
+                if (c != mSeparator) {
+                    break;
+                }
+                c = read();
+            }
+            if (c == '\r') {
+                c = read();
+            }
+            if (c == '\n') {
+                c = read();
+            }
+            mNext = c;
+            mRecord++;
+            return true;
+        }
+
+        /**
+         * Reads content of quoted field, doubled quotes are read as a single quote.
+         *
+         * @return first character after the closing quote
+         */
+        private int readQuoted() throws IOException {
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw new IOException(String.format("Unterminated quoted field in record %d of %s", mRecord + 1,
+                        mFile));
+                }
+                if (c == QUOTE) {
+                    c = read();
+                    if (c != QUOTE) {
+                        return c;
+                    }
+                }
+                mField.append((char) c);
+            }
+        }
+
+        private int read() throws IOException {
+            if (mPosition == mLength) {
+                mLength = mIn.read(mBuffer);
+                mPosition = 0;
+                if (mLength <= 0) {
+                    mLength = 0;
+                    return -1;
+                }
+            }
+            return mBuffer[mPosition++];
+        }
+
+        void close() throws IOException {
+            mIn.close();
+        }
+    }
+}
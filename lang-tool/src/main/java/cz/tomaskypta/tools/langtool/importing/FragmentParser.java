@@ -0,0 +1,243 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parser of mixed content values, e.g. strings with html markup. The value is parsed with StAX parser and serialized
+ * again, so that it's written well-formed and escaped the same way as the text content.
+ * <p>
+ * Instances are not thread-safe, the parser and its buffers are reused for all values parsed by one thread.
+ */
+class FragmentParser {
+
+    private static final String ROOT_START_TAG = "<fragment>";
+    private static final String ROOT_END_TAG = "</fragment>";
+    private static final String PROPERTY_REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+
+    private final XMLInputFactory mFactory;
+    private final StringBuilder mContent = new StringBuilder();
+    private final StringBuilder mText = new StringBuilder();
+    private final List<String[]> mAttributes = new ArrayList<String[]>();
+    private String mError;
+
+    FragmentParser() {
+        mFactory = XMLInputFactory.newInstance();
+        // values can contain prefixes without namespace declaration, like xliff:g
+        mFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        mFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        mFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        if (mFactory.isPropertySupported(PROPERTY_REPORT_CDATA)) {
+            mFactory.setProperty(PROPERTY_REPORT_CDATA, true);
+        }
+    }
+
+    /**
+     * Parses the value as content of an element.
+     *
+     * @return serialized content, valid until the next call, or {@code null} if the value is not well-formed, see
+     * {@link #getError()}
+     */
+    CharSequence parse(String value) {
+        return parse(new CompositeReader(ROOT_START_TAG, value, ROOT_END_TAG));
+    }
+
+    /**
+     * Parses the fragment read from the reader, the fragment has to be wrapped in a single root element.
+     *
+     * @return serialized content of the root element, valid until the next call, or {@code null} if the fragment is
+     * not well-formed, see {@link #getError()}
+     */
+    CharSequence parse(Reader fragment) {
+        mContent.setLength(0);
+        mText.setLength(0);
+        mError = null;
+        XMLStreamReader reader = null;
+        try {
+            reader = mFactory.createXMLStreamReader(fragment);
+            serialize(reader);
+            return mContent;
+        } catch (XMLStreamException e) {
+            mError = getMessage(e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing to release
+                }
+            }
+        }
+    }
+
+    /**
+     * @return description of the error of the last parsed fragment, {@code null} if it was well-formed
+     */
+    String getError() {
+        return mError;
+    }
+
+    private void serialize(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 0;
+        // start tag not closed yet, becomes empty element tag when the element has no content
+        boolean openTag = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                    if (depth > 0) {
+                        openTag = closeTag(openTag);
+                        mText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    continue;
+                }
+                flushText();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (depth++ == 0) {
+                            // the root element only wraps the content
+                            break;
+                        }
+                        openTag = closeTag(openTag);
+                        mContent.append('<').append(reader.getLocalName());
+                        writeAttributes(reader);
+                        openTag = true;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (--depth == 0) {
+                            break;
+                        }
+                        if (openTag) {
+                            mContent.append("/>");
+                            openTag = false;
+                        } else {
+                            mContent.append("</").append(reader.getLocalName()).append('>');
+                        }
+                        break;
+                    case XMLStreamConstants.CDATA:
+                        openTag = closeTag(openTag);
+                        ResourceWriter.writeCData(mContent, reader.getText());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        if (depth > 0) {
+                            openTag = closeTag(openTag);
+                            ResourceWriter.writeComment(mContent, reader.getText());
+                        }
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        if (depth > 0) {
+                            openTag = closeTag(openTag);
+                            mContent.append("<?").append(reader.getPITarget()).append(' ')
+                                .append(reader.getPIData()).append("?>");
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            // not thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean closeTag(boolean openTag) {
+        if (openTag) {
+            mContent.append('>');
+        }
+        return false;
+    }
+
+    private void flushText() throws IOException {
+        if (mText.length() > 0) {
+            ResourceWriter.writeText(mContent, mText);
+            mText.setLength(0);
+        }
+    }
+
+    /**
+     * Writes attributes ordered by name, the same way as DOM orders them.
+     */
+    private void writeAttributes(XMLStreamReader reader) throws IOException {
+        int count = reader.getAttributeCount();
+        if (count == 0) {
+            return;
+        }
+        mAttributes.clear();
+        for (int i = 0; i < count; i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = reader.getAttributeLocalName(i);
+            if (prefix != null && !prefix.isEmpty()) {
+                name = prefix + ":" + name;
+            }
+            mAttributes.add(new String[]{name, reader.getAttributeValue(i)});
+        }
+        if (count > 1) {
+            Collections.sort(mAttributes, (a, b) -> a[0].compareTo(b[0]));
+        }
+        for (String[] attribute : mAttributes) {
+            ResourceWriter.writeAttribute(mContent, attribute[0], attribute[1]);
+        }
+    }
+
+    private static String getMessage(XMLStreamException e) {
+        String message = e.getMessage();
+        int index = message == null ? -1 : message.indexOf("Message: ");
+        if (index != -1) {
+            message = message.substring(index + "Message: ".length());
+        }
+        Location location = e.getLocation();
+        if (location != null) {
+            int column = location.getColumnNumber();
+            if (location.getLineNumber() == 1) {
+                // first line starts with start tag of the root element
+                column -= ROOT_START_TAG.length();
+            }
+            message = String.format("line %d, column %d: %s", location.getLineNumber(), column, message);
+        }
+        return message;
+    }
+
+    /**
+     * Reads the value between start and end tag of the root element, without concatenating them.
+     */
+    private static class CompositeReader extends Reader {
+
+        private final String[] mParts;
+        private int mPart;
+        private int mIndex;
+
+        CompositeReader(String... parts) {
+            mParts = parts;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            while (mPart < mParts.length && mIndex == mParts[mPart].length()) {
+                mPart++;
+                mIndex = 0;
+            }
+            if (mPart == mParts.length) {
+                return -1;
+            }
+            String part = mParts[mPart];
+            int count = Math.min(length, part.length() - mIndex);
+            part.getChars(mIndex, mIndex + count, buffer, offset);
+            mIndex += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
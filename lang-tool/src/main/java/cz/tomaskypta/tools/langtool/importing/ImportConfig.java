@@ -1,55 +1,19 @@
 package cz.tomaskypta.tools.langtool.importing;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
 
 import cz.tomaskypta.tools.langtool.CommandlineArguments;
 import cz.tomaskypta.tools.langtool.CommonConfig;
+import cz.tomaskypta.tools.langtool.util.ConfigSheets;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 
 /**
  * Created by Tomáš Kypta on 02.10.14.
  */
 public class ImportConfig extends CommonConfig {
 
-    static class Transformation {
-        String regex;
-        String transformation;
-        Set<String> languages;
-
-        Transformation(String regex, String transformation) {
-            this.regex = regex;
-            this.transformation = transformation;
-            this.languages = null;
-        }
-
-        Transformation(String regex, String transformation, String languagesList) {
-            this.regex = regex;
-            this.transformation = transformation;
-            if (languagesList != null) {
-                String[] tmpLangs = languagesList.split(",");
-                languages = new HashSet<String>(Arrays.asList(tmpLangs));
-            }
-        }
-
-        String apply(String str, String lang) {
-            if (str == null) {
-                return null;
-            }
-            if (languages != null && !languages.contains(lang)) {
-                return str;
-            }
-            return str.replaceFirst(regex, transformation);
-        }
-    }
-
     public boolean escapeAll;
     public String inputFile;
     public String mappingFile;
@@ -59,7 +23,7 @@ public class ImportConfig extends CommonConfig {
     private Set<String> escapedSet;
     public boolean unescapeFirst;
     public String extraTransformations;
-    private Map<String, Transformation> transformationsMap;
+    private TransformationRules transformationRules;
     public String mixedContent;
     private Set<String> mixedContentSet;
 
@@ -67,7 +31,7 @@ public class ImportConfig extends CommonConfig {
     public ImportConfig() {
         super();
         this.escapedSet = new HashSet<String>();
-        transformationsMap = new HashMap<String, Transformation>();
+        transformationRules = new TransformationRules();
         mixedContentSet = new HashSet<String>();
     }
 
@@ -80,7 +44,8 @@ public class ImportConfig extends CommonConfig {
         this.outputFileName = other.outputFileName;
         this.escapedSet = new HashSet<String>(other.escapedSet);
         this.unescapeFirst = other.unescapeFirst;
-        this.transformationsMap = new HashMap<String, Transformation>(other.transformationsMap);
+        // rules are not modified once loaded
+        this.transformationRules = other.transformationRules;
         this.extraTransformations = other.extraTransformations;
         this.mixedContent = other.mixedContent;
         this.mixedContentSet = new HashSet<String>(other.mixedContentSet);
@@ -111,15 +76,12 @@ public class ImportConfig extends CommonConfig {
         }
 
         try {
-            Workbook wbEscaping = WorkbookFactory.create(new FileInputStream(new File(this.escapingConfigFile)));
-            Sheet sheetEscaping = wbEscaping.getSheetAt(0);
-            Iterator<Row> it = sheetEscaping.rowIterator();
-            while (it.hasNext()) {
-                Row row = it.next();
-                if (row == null || row.getCell(0) == null) {
+            for (String[] row : ConfigSheets.read(escapingConfigFile)) {
+                String key = ConfigSheets.cell(row, 0);
+                if (key == null) {
                     return;
                 }
-                escapedSet.add(row.getCell(0).getStringCellValue());
+                escapedSet.add(key);
             }
         } catch (FileNotFoundException e) {
 
@@ -128,30 +90,26 @@ public class ImportConfig extends CommonConfig {
         }
     }
 
-    public Transformation getKeyTransformation(String key) {
-        return transformationsMap.get(key);
+    public TransformationRules.Transformation getKeyTransformation(String key) {
+        return transformationRules.forKey(key);
     }
 
     public void setTransformations(String extraImportTransformations) {
-        this.transformationsMap = new HashMap<String, Transformation>();
+        this.transformationRules = new TransformationRules();
         this.extraTransformations = extraImportTransformations;
         if (StringUtils.isEmpty(extraImportTransformations)) {
             return;
         }
 
         try {
-            Workbook wbEscaping = WorkbookFactory.create(new FileInputStream(new File(this.extraTransformations)));
-            Sheet sheetEscaping = wbEscaping.getSheetAt(0);
-            Iterator<Row> it = sheetEscaping.rowIterator();
-            while (it.hasNext()) {
-                Row row = it.next();
-                if (row == null || row.getCell(0) == null || row.getCell(1) == null || row.getCell(2) == null) {
+            for (String[] row : ConfigSheets.read(extraImportTransformations)) {
+                String selector = ConfigSheets.cell(row, 0);
+                String regex = ConfigSheets.cell(row, 1);
+                String replacement = ConfigSheets.cell(row, 2);
+                if (selector == null || regex == null || replacement == null) {
                     return;
                 }
-                Transformation transformation = new Transformation(row.getCell(1).getStringCellValue(),
-                    row.getCell(2).getStringCellValue(), row.getCell(3) != null ? row.getCell(3).getStringCellValue()
-                    : null);
-                transformationsMap.put(row.getCell(0).getStringCellValue(), transformation);
+                transformationRules.add(selector, regex, replacement, ConfigSheets.cell(row, 3));
             }
         } catch (FileNotFoundException e) {
 
@@ -172,15 +130,12 @@ public class ImportConfig extends CommonConfig {
         }
 
         try {
-            Workbook wbEscaping = WorkbookFactory.create(new FileInputStream(new File(this.mixedContent)));
-            Sheet sheetEscaping = wbEscaping.getSheetAt(0);
-            Iterator<Row> it = sheetEscaping.rowIterator();
-            while (it.hasNext()) {
-                Row row = it.next();
-                if (row == null || row.getCell(0) == null) {
+            for (String[] row : ConfigSheets.read(mixedContent)) {
+                String key = ConfigSheets.cell(row, 0);
+                if (key == null) {
                     return;
                 }
-                mixedContentSet.add(row.getCell(0).getStringCellValue());
+                mixedContentSet.add(key);
             }
         } catch (FileNotFoundException e) {
 
@@ -0,0 +1,90 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+/**
+ * Key column of an imported row, parsed once and shared by all languages.
+ */
+class ImportRow {
+
+    enum Type {
+        /**
+         * Empty or ignored key.
+         */
+        EMPTY,
+        COMMENT,
+        PLURALS_ITEM,
+        ARRAY_ITEM,
+        STRING
+    }
+
+    final Type type;
+    /**
+     * Key as written in the sheet.
+     */
+    final String key;
+    /**
+     * Comment text, name of the string, plurals or string-array.
+     */
+    final String name;
+    /**
+     * Quantity of plurals item.
+     */
+    final String quantity;
+    final ContentType contentType;
+    final boolean mixedContent;
+    final boolean escaped;
+    final TransformationRules.Transformation transformation;
+
+    private ImportRow(Type type, String key, String name, String quantity, ImportConfig config) {
+        this.type = type;
+        this.key = key;
+        this.name = name;
+        this.quantity = quantity;
+        if (type == Type.STRING) {
+            this.contentType = ContentType.detect(key);
+            this.mixedContent = config.isMixedContent(key);
+        } else {
+            this.contentType = ContentType.TEXT;
+            this.mixedContent = false;
+        }
+        if (type == Type.STRING || type == Type.PLURALS_ITEM || type == Type.ARRAY_ITEM) {
+            this.escaped = config.isEscapedKey(key);
+            this.transformation = config.getKeyTransformation(key);
+        } else {
+            this.escaped = false;
+            this.transformation = null;
+        }
+    }
+
+    static ImportRow parse(String key, ImportConfig config) {
+        if ("".equals(key)) {
+            return new ImportRow(Type.EMPTY, key, null, null, config);
+        }
+        if (key.startsWith("/**")) {
+            return new ImportRow(Type.COMMENT, key, key.substring(3, key.length() - 3), null, config);
+        }
+        if (key.startsWith("//")) {
+            return new ImportRow(Type.COMMENT, key, key.substring(2), null, config);
+        }
+        if (config.isIgnoredKey(key)) {
+            return new ImportRow(Type.EMPTY, key, null, null, config);
+        }
+
+        int plurarIndex = key.indexOf("#");
+        if (plurarIndex >= 0) {
+            return new ImportRow(Type.PLURALS_ITEM, key, key.substring(0, plurarIndex),
+                key.substring(plurarIndex + 1), config);
+        }
+        int arrayIndex = key.indexOf("[");
+        if (arrayIndex >= 0) {
+            // we don't really need the index
+            return new ImportRow(Type.ARRAY_ITEM, key, key.substring(0, arrayIndex), null, config);
+        }
+
+        String name = key;
+        int index = key.indexOf("!");
+        if (index != -1) {
+            name = key.substring(0, index);
+        }
+        return new ImportRow(Type.STRING, key, name, null, config);
+    }
+}
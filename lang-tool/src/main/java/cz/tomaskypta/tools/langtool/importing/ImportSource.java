@@ -0,0 +1,55 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Source of rows for importing, typically the first sheet of a spreadsheet file.
+ */
+public interface ImportSource extends Closeable {
+
+    /**
+     * Receives rows of the source in their order.
+     */
+    interface RowHandler {
+        /**
+         * @param rowNum 0-based index of the row
+         * @param cells  cell values indexed by column, {@code null} for missing cells
+         * @return {@code false} to stop reading
+         */
+        boolean onRow(int rowNum, String[] cells) throws IOException;
+    }
+
+    String getSheetName();
+
+    /**
+     * Reads all rows of the source. Can be called repeatedly, every call starts from the first row.
+     */
+    void readRows(RowHandler handler) throws IOException;
+
+    /**
+     * Opens the file with the most suitable reader chosen by extension. Xlsx, CSV, TSV and XLIFF files are streamed,
+     * other files are loaded by {@link org.apache.poi.ss.usermodel.WorkbookFactory}.
+     */
+    static ImportSource open(File file) throws IOException {
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".xlsx")) {
+            return new XlsxEventSource(file);
+        } else if (name.endsWith(".csv")) {
+            return new CsvSource(file, ',');
+        } else if (name.endsWith(".tsv")) {
+            return new CsvSource(file, '\t');
+        } else if (name.endsWith(".xlf") || name.endsWith(".xliff")) {
+            return new XliffSource(file);
+        }
+        return new WorkbookSource(file);
+    }
+
+    /**
+     * @return cell value of the given column or {@code null} if the cell does not exist
+     */
+    static String cell(String[] cells, int column) {
+        return column < cells.length ? cells[column] : null;
+    }
+}
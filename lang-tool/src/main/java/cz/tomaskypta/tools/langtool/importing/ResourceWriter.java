@@ -0,0 +1,331 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Writes Android resource file item by item, without building a document. Output is formatted the same way as by
+ * indenting {@link javax.xml.transform.Transformer} with indent of 2 spaces, except for mixed content which is written
+ * as is.
+ * <p>
+ * The file is written into a temporary file first. When closed, the temporary file replaces the target file only if
+ * their content differs, so that unchanged resources keep their timestamps.
+ */
+class ResourceWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String INDENT = "  ";
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private final File mFile;
+    private final File mTempFile;
+    private final MessageDigest mDigest;
+    private final Writer mOut;
+    private boolean mEmpty = true;
+    private boolean mClosed;
+    private boolean mChanged;
+    private String mGroup;
+
+    ResourceWriter(File file) throws IOException {
+        mFile = file;
+        mTempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        mDigest = DigestUtils.getSha256Digest();
+        mOut = new BufferedWriter(new OutputStreamWriter(
+            new DigestOutputStream(new FileOutputStream(mTempFile), mDigest), StandardCharsets.UTF_8), BUFFER_SIZE);
+        mOut.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+        mOut.write(NEW_LINE);
+        mOut.write("<resources");
+    }
+
+    void comment(String text) throws IOException {
+        startLine(mGroup == null ? 1 : 2);
+        writeComment(mOut, text);
+    }
+
+    /**
+     * Starts element grouping items, like {@code plurals} or {@code string-array}. Following items are written into
+     * the group until it is ended.
+     */
+    void startGroup(String nodeName, String name) throws IOException {
+        endGroup();
+        startLine(1);
+        mOut.write('<');
+        mOut.write(nodeName);
+        writeAttribute(mOut, "name", name);
+        mOut.write('>');
+        mGroup = nodeName;
+    }
+
+    void endGroup() throws IOException {
+        if (mGroup == null) {
+            return;
+        }
+        startLine(1);
+        mOut.write("</");
+        mOut.write(mGroup);
+        mOut.write('>');
+        mGroup = null;
+    }
+
+    /**
+     * Writes element with text content.
+     */
+    void text(String nodeName, String name, String quantity, String value, boolean cdata) throws IOException {
+        startElement(nodeName, name, quantity);
+        if (value.isEmpty()) {
+            mOut.write("/>");
+            return;
+        }
+        mOut.write('>');
+        if (cdata) {
+            writeCData(mOut, value);
+        } else {
+            writeText(mOut, value);
+        }
+        endElement(nodeName);
+    }
+
+    /**
+     * Writes element with already serialized content, see {@link FragmentParser}.
+     */
+    void mixed(String nodeName, String name, String quantity, CharSequence content) throws IOException {
+        startElement(nodeName, name, quantity);
+        if (content.length() == 0) {
+            mOut.write("/>");
+            return;
+        }
+        mOut.write('>');
+        mOut.append(content);
+        endElement(nodeName);
+    }
+
+    /**
+     * Finishes the file and replaces the target file if it has changed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        boolean done = false;
+        try {
+            try {
+                endGroup();
+                if (mEmpty) {
+                    mOut.write("/>");
+                } else {
+                    mOut.write(NEW_LINE);
+                    mOut.write("</resources>");
+                }
+                mOut.write(NEW_LINE);
+            } finally {
+                mOut.close();
+            }
+            mChanged = !hasSameContent();
+            if (mChanged) {
+                replace();
+            }
+            done = true;
+        } finally {
+            if (!done || !mChanged) {
+                mTempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Discards the written content, the target file is kept untouched.
+     */
+    void abort() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        try {
+            mOut.close();
+        } catch (IOException e) {
+            // the content is discarded anyway
+        }
+        mTempFile.delete();
+    }
+
+    /**
+     * @return {@code true} if the target file was written when closing, {@code false} if it had the same content
+     */
+    boolean isChanged() {
+        return mChanged;
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    private boolean hasSameContent() throws IOException {
+        if (!mFile.isFile() || mFile.length() != mTempFile.length()) {
+            return false;
+        }
+        InputStream in = new FileInputStream(mFile);
+        try {
+            return MessageDigest.isEqual(DigestUtils.sha256(in), mDigest.digest());
+        } finally {
+            in.close();
+        }
+    }
+
+    private void replace() throws IOException {
+        try {
+            Files.move(mTempFile.toPath(), mFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(mTempFile.toPath(), mFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void startElement(String nodeName, String name, String quantity) throws IOException {
+        startLine(mGroup == null ? 1 : 2);
+        mOut.write('<');
+        mOut.write(nodeName);
+        // attributes in alphabetical order as DOM keeps them
+        if (name != null) {
+            writeAttribute(mOut, "name", name);
+        }
+        if (quantity != null) {
+            writeAttribute(mOut, "quantity", quantity);
+        }
+    }
+
+    private void endElement(String nodeName) throws IOException {
+        mOut.write("</");
+        mOut.write(nodeName);
+        mOut.write('>');
+    }
+
+    private void startLine(int depth) throws IOException {
+        if (mEmpty) {
+            mEmpty = false;
+            mOut.write('>');
+        }
+        mOut.write(NEW_LINE);
+        for (int i = 0; i < depth; i++) {
+            mOut.write(INDENT);
+        }
+    }
+
+    static void writeAttribute(Appendable out, String name, String value) throws IOException {
+        out.append(' ').append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                default:
+                    if (c < 0x20 || Character.isHighSurrogate(c)) {
+                        i = writeCharRef(out, value, i);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        out.append('"');
+    }
+
+    static void writeText(Appendable out, CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '\n':
+                    out.append(NEW_LINE);
+                    break;
+                case '\t':
+                    out.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || (c >= 0x7f && c <= 0x9f) || Character.isHighSurrogate(c)) {
+                        i = writeCharRef(out, text, i);
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return index of the last char of the written code point
+     */
+    private static int writeCharRef(Appendable out, CharSequence text, int index) throws IOException {
+        int codePoint = Character.codePointAt(text, index);
+        out.append("&#").append(Integer.toString(codePoint)).append(';');
+        return index + Character.charCount(codePoint) - 1;
+    }
+
+    static void writeCData(Appendable out, String text) throws IOException {
+        if (text.isEmpty()) {
+            return;
+        }
+        out.append("<![CDATA[");
+        int start = 0;
+        int end;
+        while ((end = text.indexOf("]]>", start)) != -1) {
+            // split the section to keep its end in the content
+            out.append(text, start, end + 2);
+            out.append("]]><![CDATA[");
+            start = end + 2;
+        }
+        out.append(text, start, text.length());
+        out.append("]]>");
+    }
+
+    static void writeComment(Appendable out, String text) throws IOException {
+        out.append("<!--");
+        char last = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '-' && last == '-') {
+                out.append(' ');
+            }
+            out.append(c);
+            last = c;
+        }
+        if (last == '-') {
+            out.append(' ');
+        }
+        out.append("-->");
+    }
+}
@@ -0,0 +1,47 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Import source reading a range of rows of another source which were already read into memory. The title row is
+ * passed as the first row, followed by the rows of the range, the same way as if the range was a sheet of its own.
+ */
+public class RowRangeSource implements ImportSource {
+
+    private final String mSheetName;
+    private final String[] mTitleCells;
+    private final List<String[]> mRows;
+
+    /**
+     * @param rows cells of the rows in the range, {@code null} for missing rows; the list is not copied
+     */
+    public RowRangeSource(String sheetName, String[] titleCells, List<String[]> rows) {
+        mSheetName = sheetName;
+        mTitleCells = titleCells;
+        mRows = rows;
+    }
+
+    @Override
+    public String getSheetName() {
+        return mSheetName;
+    }
+
+    @Override
+    public void readRows(RowHandler handler) throws IOException {
+        if (!handler.onRow(0, mTitleCells)) {
+            return;
+        }
+        for (int i = 0; i < mRows.size(); i++) {
+            String[] cells = mRows.get(i);
+            if (cells != null && !handler.onRow(i + 1, cells)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        // rows are owned by the original source
+    }
+}
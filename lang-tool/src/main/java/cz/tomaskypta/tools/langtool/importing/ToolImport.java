@@ -1,39 +1,47 @@
 package cz.tomaskypta.tools.langtool.importing;
 
+import cz.tomaskypta.tools.langtool.RunReport;
+import cz.tomaskypta.tools.langtool.util.ConfigSheets;
 import cz.tomaskypta.tools.langtool.util.EscapingUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.ErrorHandler;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import java.io.*;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ToolImport {
 
-    private DocumentBuilder builder;
+    /**
+     * Number of rows passed to language generators at once.
+     */
+    private static final int ROWS_BATCH_SIZE = 1000;
+    private static final String PHASE_IMPORT_ROWS = "import rows";
+    private static final String PHASE_WRITE_FILES = "write files";
+
+    private interface LangTask {
+        void run(LangGenerator generator) throws IOException;
+    }
+
+    /**
+     * Fragment parsers are not thread-safe, every thread has its own.
+     */
+    private static final ThreadLocal<FragmentParser> fragmentParser = ThreadLocal.withInitial(FragmentParser::new);
+    private ExecutorService mExecutor;
     private File outResDir;
     private PrintStream out;
     private HashMap<String, String> mMapping;
     private ImportConfig mConfig;
+    private RunReport mReport = new RunReport("import");
 
     public ToolImport(PrintStream out) throws ParserConfigurationException {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        builder = dbf.newDocumentBuilder();
         this.out = out == null ? System.out : out;
     }
 
@@ -48,30 +56,51 @@ public class ToolImport {
             return;
         }
 
-        var wb = WorkbookFactory.create(new FileInputStream(config.inputFile));
-        var sheet = wb.getSheetAt(0);
+        RunReport report = new RunReport("import");
+        File inputFile = new File(config.inputFile);
+        ImportSource source = ImportSource.open(inputFile);
+        try {
+            report.addBytesRead(inputFile.length());
+            run(null, config, source, report);
+        } finally {
+            source.close();
+        }
+        report.finish();
+        report.printSummary(System.out);
+        if (!StringUtils.isEmpty(config.reportFile)) {
+            report.write(new File(config.reportFile));
+        }
+    }
 
-        Sheet sheetMapping = null;
+    /**
+     * Imports rows of the source, e.g. a part of a split file. The source is not closed.
+     *
+     * @param out    stream for progress messages, {@code null} for standard output
+     * @param report report collecting metrics of the import, it's not finished
+     */
+    public static void run(PrintStream out, ImportConfig config, ImportSource source, RunReport report)
+        throws IOException, ParserConfigurationException {
+        List<String[]> mappingRows = null;
         if (!StringUtils.isEmpty(config.mappingFile)) {
-            Workbook wbMapping = WorkbookFactory.create(new FileInputStream(config.mappingFile));
-            sheetMapping = wbMapping.getSheetAt(0);
+            mappingRows = ConfigSheets.read(config.mappingFile);
         }
 
         String outputDirName = config.outputDirName;
         if (StringUtils.isEmpty(outputDirName)) {
-            outputDirName = sheet.getSheetName();
+            outputDirName = source.getSheetName();
         }
 
         if (config.outputFileName == null) {
             config.outputFileName = "strings.xml";
         }
 
-        ToolImport tool = new ToolImport(null);
+        ToolImport tool = new ToolImport(out);
         tool.mConfig = config;
-        tool.outResDir = new File("out/" + outputDirName + "/res");
+        tool.mReport = report;
+        tool.outResDir = new File(config.workingDir, "out/" + outputDirName + "/res");
         tool.outResDir.mkdirs();
-        tool.prepareMapping(sheetMapping);
-        tool.parse(sheet);
+        tool.prepareMapping(mappingRows);
+        tool.parse(source);
     }
 
     public static void run(PrintStream out, String projectDir, String input) throws IOException, ParserConfigurationException, TransformerException {
@@ -81,226 +110,279 @@ public class ToolImport {
             return;
         }
 
-        Workbook wb = WorkbookFactory.create(new FileInputStream(new File(input)));
-        Sheet sheet = wb.getSheetAt(0);
-
-
-        tool.outResDir = new File(projectDir, "/res");
-        //tool.outResDir.mkdirs();
-        tool.parse(sheet);
+        ImportSource source = ImportSource.open(new File(input));
+        try {
+            tool.outResDir = new File(projectDir, "/res");
+            //tool.outResDir.mkdirs();
+            tool.parse(source);
+        } finally {
+            source.close();
+        }
     }
 
-    private void prepareMapping(Sheet sheetMapping) {
-        if (sheetMapping == null) {
+    private void prepareMapping(List<String[]> mappingRows) {
+        if (mappingRows == null) {
             return;
         }
         mMapping = new HashMap<String, String>();
-        Iterator<Row> it = sheetMapping.rowIterator();
-        while (it.hasNext()) {
-            Row row = it.next();
-            mMapping.put(row.getCell(0).getStringCellValue(), row.getCell(1).getStringCellValue());
+        for (String[] row : mappingRows) {
+            mMapping.put(ConfigSheets.cell(row, 0), ConfigSheets.cell(row, 1));
         }
     }
 
-    private void parse(Sheet sheet) throws IOException, TransformerException {
-        Row row = sheet.getRow(0);
-        Iterator<Cell> cells = row.cellIterator();
-        cells.next();// ignore key
-        int i = 1;
-        while (cells.hasNext()) {
-            String lang = cells.next().toString();
-            if (mMapping != null && mMapping.containsKey(lang)) {
-                lang = mMapping.get(lang);
+    private void parse(ImportSource source) throws IOException {
+        if (mConfig.threads > 1) {
+            mExecutor = Executors.newFixedThreadPool(mConfig.threads);
+        }
+        final List<LangGenerator> generators = new ArrayList<LangGenerator>();
+        try {
+            final List<ImportRow> rows = new ArrayList<ImportRow>(ROWS_BATCH_SIZE);
+            final List<String[]> rowsCells = new ArrayList<String[]>(ROWS_BATCH_SIZE);
+            long start = System.nanoTime();
+            source.readRows(new ImportSource.RowHandler() {
+                boolean titleRow = true;
+
+                @Override
+                public boolean onRow(int rowNum, String[] cells) throws IOException {
+                    if (titleRow) {
+                        titleRow = false;
+                        prepareGenerators(cells, generators);
+                        return true;
+                    }
+                    String key = ImportSource.cell(cells, 0);// android key
+                    if (key == null) {
+                        return true;
+                    }
+                    rows.add(ImportRow.parse(key, mConfig));
+                    rowsCells.add(cells);
+                    if (rows.size() == ROWS_BATCH_SIZE) {
+                        addRows(generators, rows, rowsCells);
+                    }
+                    return true;
+                }
+            });
+            addRows(generators, rows, rowsCells);
+            mReport.addPhaseTime(PHASE_IMPORT_ROWS, start);
+            start = System.nanoTime();
+            forEachGenerator(generators, LangGenerator::close);
+            mReport.addPhaseTime(PHASE_WRITE_FILES, start);
+            printSummary(generators);
+        } finally {
+            if (mExecutor != null) {
+                mExecutor.shutdownNow();
+                mExecutor = null;
+            }
+            // generators are already closed unless the import failed
+            for (LangGenerator generator : generators) {
+                generator.writer.abort();
             }
-            generateLang(sheet, lang, i);
-            i++;
         }
     }
 
-    private void generateLang(Sheet sheet, String lang, int column) throws IOException,
-        TransformerException {
-
-        Document dom = builder.newDocument();
-        Element root = dom.createElement("resources");
-        dom.appendChild(root);
-
-        Iterator<Row> iterator = sheet.rowIterator();
-        iterator.next();//ignore first row;
-        Element pluralsNode = null;
-        Element stringArrayNode = null;
-        String plurarName = null;
-        String arrayName = null;
+    private void printSummary(List<LangGenerator> generators) {
+        int written = 0;
+        for (LangGenerator generator : generators) {
+            if (generator.writer.isChanged()) {
+                written++;
+                out.println("\t" + generator.writer.getFile().getPath() + " - written");
+            }
+        }
+        out.println(String.format("Written files: %d, unchanged files: %d", written, generators.size() - written));
+    }
 
-        while (iterator.hasNext()) {
-            Row row = iterator.next();
-            Cell cell = row.getCell(0);// android key
-            if (cell == null) {
-                continue;
+    private void addRows(List<LangGenerator> generators, final List<ImportRow> rows, final List<String[]> rowsCells)
+        throws IOException {
+        forEachGenerator(generators, generator -> {
+            long start = System.nanoTime();
+            int cells = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                String value = ImportSource.cell(rowsCells.get(i), generator.column);
+                if (value != null && !value.isEmpty()) {
+                    cells++;
+                }
+                generator.addRow(rows.get(i), value);
             }
-            String key = cell.toString();
-            if (key == null || "".equals(key)) {
-                root.appendChild(dom.createTextNode(""));
-                continue;
+            generator.metrics.addRows(rows.size());
+            generator.metrics.addCells(cells);
+            generator.metrics.addTime(start);
+            mReport.addCells(cells);
+        });
+        mReport.addRows(rows.size());
+        rows.clear();
+        rowsCells.clear();
+    }
+
+    /**
+     * Runs the task for every language, concurrently when importing with more threads. Each generator is used by
+     * a single task at a time.
+     */
+    private void forEachGenerator(List<LangGenerator> generators, final LangTask task) throws IOException {
+        if (mExecutor == null) {
+            for (LangGenerator generator : generators) {
+                task.run(generator);
             }
-            if (key.startsWith("/**")) {
-                root.appendChild(dom.createComment(key.substring(3, key.length() - 3)));
-                continue;
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(generators.size());
+        for (final LangGenerator generator : generators) {
+            futures.add(mExecutor.submit(() -> {
+                task.run(generator);
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import was interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
             }
+        }
+    }
 
-            if (key.startsWith("//")) {
-                root.appendChild(dom.createComment(key.substring(2)));
+    private void prepareGenerators(String[] titleCells, List<LangGenerator> generators) throws IOException {
+        boolean keyCell = true;
+        int i = 1;
+        for (String lang : titleCells) {
+            if (lang == null) {
                 continue;
             }
-
-            if (mConfig.isIgnoredKey(key)) {
-                root.appendChild(dom.createTextNode(""));
+            if (keyCell) {
+                // ignore key
+                keyCell = false;
                 continue;
             }
-
-            int plurarIndex = key.indexOf("#");
-            int arrayIndex = key.indexOf("[");
-
-            if (plurarIndex >= 0) {
-                // plurals
-                Cell valueCell = row.getCell(column);
-                String value = "";
-                if (valueCell != null) {
-                    value = valueCell.toString();// value
-                }
-                String plurarNameNew = key.substring(0, plurarIndex);
-                String quantity = key.substring(plurarIndex + 1);
-                if (!plurarNameNew.equals(plurarName)) {
-                    plurarName = plurarNameNew;
-                    pluralsNode = dom.createElement("plurals");
-                    pluralsNode.setAttribute("name", plurarName);
-                }
-                value = prepareOutputValue(lang, key, value);
-                addContent(dom, pluralsNode, value, "item", null, quantity);
-
-                root.appendChild(pluralsNode);
-            } else if (arrayIndex >= 0) {
-                // string-array
-                Cell valueCell = row.getCell(column);
-                String value = "";
-                if (valueCell != null) {
-                    value = valueCell.toString();// value
-                }
-                String arrayNameNew = key.substring(0, arrayIndex);
-                // we don't really need the index
-//                String tmp = key.substring(arrayIndex+1);
-//                int index = Integer.parseInt(tmp.substring(0, tmp.indexOf("]")));
-
-                // it's not bullet-proof, but for the time being good enough
-                if (!arrayNameNew.equals(arrayName)) {
-                    arrayName = arrayNameNew;
-                    stringArrayNode = dom.createElement("string-array");
-                    stringArrayNode.setAttribute("name", arrayName);
-                }
-
-                value = prepareOutputValue(lang, key, value);
-                addContent(dom, stringArrayNode, value, "item", null, null);
-
-                root.appendChild(stringArrayNode);
-            } else {
-                //string
-                Cell valueCell = row.getCell(column);
-                if (valueCell == null) {
-                    addEmptyKeyValue(dom, root, key);
-                    continue;
-                }
-                String value = valueCell.toString();// value
-
-                if (value.isEmpty()) {
-                    addEmptyKeyValue(dom, root, key);
-                } else {
-
-                    value = prepareOutputValue(lang, key, value);
-
-                    addContent(dom, root, value, "string", key, null);
-                }
+            if (mMapping != null && mMapping.containsKey(lang)) {
+                lang = mMapping.get(lang);
             }
-
+            generators.add(new LangGenerator(lang, i));
+            i++;
         }
-
-        save(dom, lang);
     }
 
-    private void addContent(Document dom, Element root, String value, String nodeName, String key, String quantity) {
-        if (!mConfig.isMixedContent(key)) {
-            addContentAsString(dom, root, value, nodeName, key, quantity);
-            return;
+    /**
+     * Writes resources file of a single language, row by row.
+     */
+    private class LangGenerator implements Closeable {
+
+        private final String lang;
+        private final int column;
+        private final ResourceWriter writer;
+        private final RunReport.LangMetrics metrics;
+        private String plurarName = null;
+        private String arrayName = null;
+
+        LangGenerator(String lang, int column) throws IOException {
+            this.lang = lang;
+            this.column = column;
+            writer = new ResourceWriter(getOutputFile(lang));
+            metrics = mReport.lang(lang);
         }
 
-        try {
-            DocumentBuilder db = DocumentBuilderFactory
-                .newInstance()
-                .newDocumentBuilder();
-            // TODO improve
-            // currently ignoring errors - there were irrelevant messages about '&'
-            db.setErrorHandler(new ErrorHandler() {
-                @Override
-                public void warning(SAXParseException exception) throws SAXException {
-
-                }
-
-                @Override
-                public void error(SAXParseException exception) throws SAXException {
-
-                }
-
-                @Override
-                public void fatalError(SAXParseException exception) throws SAXException {
-
-                }
-            });
-            Element content = db
-                .parse(new ByteArrayInputStream(("<" + nodeName + ">" + value + "</" + nodeName + ">").getBytes()))
-                .getDocumentElement();
-            if (key != null) {
-                content.setAttribute("name", key);
+        void addRow(ImportRow row, String value) throws IOException {
+            // items of plurals and arrays are expected in consecutive rows, any other row ends them
+            if (row.type != ImportRow.Type.EMPTY && row.type != ImportRow.Type.PLURALS_ITEM
+                && row.type != ImportRow.Type.ARRAY_ITEM) {
+                plurarName = null;
+                arrayName = null;
+                writer.endGroup();
             }
-            if (quantity != null) {
-                content.setAttribute("quantity", quantity);
+            switch (row.type) {
+                case EMPTY:
+                    break;
+                case COMMENT:
+                    writer.comment(row.name);
+                    break;
+                case PLURALS_ITEM:
+                    if (value == null) {
+                        metrics.addMissingKey(row.key);
+                        value = "";
+                    }
+                    if (!row.name.equals(plurarName)) {
+                        plurarName = row.name;
+                        arrayName = null;
+                        writer.startGroup("plurals", plurarName);
+                    }
+                    value = prepareOutputValue(lang, row, value);
+                    addContent(writer, lang, value, "item", row, null, row.quantity);
+                    break;
+                case ARRAY_ITEM:
+                    if (value == null) {
+                        metrics.addMissingKey(row.key);
+                        value = "";
+                    }
+                    // it's not bullet-proof, but for the time being good enough
+                    if (!row.name.equals(arrayName)) {
+                        arrayName = row.name;
+                        plurarName = null;
+                        writer.startGroup("string-array", arrayName);
+                    }
+
+                    value = prepareOutputValue(lang, row, value);
+                    addContent(writer, lang, value, "item", row, null, null);
+                    break;
+                default:
+                    if (value == null || value.isEmpty()) {
+                        metrics.addMissingKey(row.key);
+                        addEmptyKeyValue(writer, row.key);
+                    } else {
+                        value = prepareOutputValue(lang, row, value);
+                        addContent(writer, lang, value, "string", row, row.key, null);
+                    }
+                    break;
             }
-            Node tmp = dom.importNode(content, true);
-            root.appendChild(tmp);
-        } catch (Exception e) {
-            addContentAsString(dom, root, value, nodeName, key, quantity);
         }
-    }
 
-    private void addContentAsString(Document dom, Element root, String value, String nodeName, String key, String quantity) {
-        Element node = dom.createElement(nodeName);
-        ContentType type = ContentType.detect(key);
-
-        if (key != null) {
-            int index = key.indexOf("!");
-            if (index != -1) {
-                key = key.substring(0, index);
+        @Override
+        public void close() throws IOException {
+            writer.close();
+            mReport.addFile(writer.isChanged());
+            if (writer.isChanged()) {
+                mReport.addBytesWritten(writer.getFile().length());
             }
-            node.setAttribute("name", key);
         }
-        if (quantity != null) {
-            node.setAttribute("quantity", quantity);
+    }
+
+    private void addContent(ResourceWriter writer, String lang, String value, String nodeName, ImportRow row,
+                            String key, String quantity) throws IOException {
+        if (!row.mixedContent) {
+            addContentAsString(writer, value, nodeName, row, key, quantity);
+            return;
         }
 
-        if (type == ContentType.CDATA) {
-            node.appendChild(dom.createCDATASection(value));
-        } else {
-            node.setTextContent(value);
+        FragmentParser parser = fragmentParser.get();
+        CharSequence content = parser.parse(value);
+        if (content == null) {
+            out.println(String.format("\t%s - malformed mixed content of '%s' imported as text, %s", row.key, lang,
+                parser.getError()));
+            addContentAsString(writer, value, nodeName, row, key, quantity);
+            return;
         }
-        root.appendChild(node);
+        writer.mixed(nodeName, key, quantity, content);
     }
 
-    private String prepareOutputValue(String lang, String key, String value) {
-        ImportConfig.Transformation tranformation = mConfig.getKeyTransformation(key);
-        if (tranformation != null) {
-            value = tranformation.apply(value, lang);
+    private void addContentAsString(ResourceWriter writer, String value, String nodeName, ImportRow row,
+                                    String key, String quantity) throws IOException {
+        writer.text(nodeName, key != null ? row.name : null, quantity, value, row.contentType == ContentType.CDATA);
+    }
+
+    private String prepareOutputValue(String lang, ImportRow row, String value) {
+        if (row.transformation != null) {
+            value = row.transformation.apply(value, lang);
         }
         if (mConfig.unescapeFirst) {
             value = EscapingUtils.unescapeQuotes(value);
         }
-        if (mConfig.isEscapedKey(key)) {
+        if (row.escaped) {
             value = EscapingUtils.escapeWithQuotes(value);
         } else {
             value = EscapingUtils.escapeWithBackslash(value);
@@ -308,11 +390,11 @@ public class ToolImport {
         return value;
     }
 
-    private static void addEmptyKeyValue(Document dom, Element root, String key) {
-        root.appendChild(dom.createComment(String.format(" TODO: string name=\"%s\" ", key)));
+    private static void addEmptyKeyValue(ResourceWriter writer, String key) throws IOException {
+        writer.comment(String.format(" TODO: string name=\"%s\" ", key));
     }
 
-    private void save(Document doc, String lang) throws TransformerException {
+    private File getOutputFile(String lang) {
         File dir;
         if ("default".equals(lang) || lang == null || "".equals(lang)) {
             dir = new File(outResDir, "values");
@@ -320,16 +402,6 @@ public class ToolImport {
             dir = new File(outResDir, "values-" + lang);
         }
         dir.mkdir();
-
-        //DOMUtils.prettyPrint(doc);
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-
-        DOMSource source = new DOMSource(doc);
-        StreamResult result = new StreamResult(new File(dir, mConfig.outputFileName));
-
-        transformer.transform(source, result);
+        return new File(dir, mConfig.outputFileName);
     }
 }
@@ -0,0 +1,200 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Transformation rules of imported strings, compiled once when the configuration is loaded.
+ * <p>
+ * Rules are selected by the key of the string. The selector is either the exact key, a glob with {@code *} and
+ * {@code ?} wildcards or a regular expression prefixed with {@code regex:}. All rules matching the key are applied in
+ * the order they were added.
+ */
+public class TransformationRules {
+
+    static final String REGEX_PREFIX = "regex:";
+
+    /**
+     * Single compiled rule.
+     */
+    private static class Rule {
+        final Pattern keyPattern;
+        final Pattern pattern;
+        final String replacement;
+        final Set<String> languages;
+
+        Rule(Pattern keyPattern, String regex, String replacement, Set<String> languages) {
+            this.keyPattern = keyPattern;
+            this.pattern = Pattern.compile(regex);
+            this.replacement = replacement;
+            this.languages = languages;
+        }
+
+        boolean isForLanguage(String lang) {
+            return languages == null || languages.contains(lang);
+        }
+
+        String apply(String str) {
+            return pattern.matcher(str).replaceFirst(replacement);
+        }
+    }
+
+    /**
+     * Rules of a single key with rules of every language resolved in advance.
+     */
+    public static class Transformation {
+
+        private static final Rule[] NO_RULES = new Rule[0];
+
+        private final Map<String, Rule[]> mLangRules = new HashMap<String, Rule[]>();
+        private final Rule[] mOtherLangRules;
+
+        private Transformation(List<Rule> rules) {
+            Set<String> languages = new HashSet<String>();
+            List<Rule> otherLangRules = new ArrayList<Rule>();
+            for (Rule rule : rules) {
+                if (rule.languages == null) {
+                    otherLangRules.add(rule);
+                } else {
+                    languages.addAll(rule.languages);
+                }
+            }
+            mOtherLangRules = otherLangRules.toArray(NO_RULES);
+            for (String lang : languages) {
+                List<Rule> langRules = new ArrayList<Rule>();
+                for (Rule rule : rules) {
+                    if (rule.isForLanguage(lang)) {
+                        langRules.add(rule);
+                    }
+                }
+                mLangRules.put(lang, langRules.toArray(NO_RULES));
+            }
+        }
+
+        public String apply(String str, String lang) {
+            if (str == null) {
+                return null;
+            }
+            Rule[] rules = mLangRules.get(lang);
+            if (rules == null) {
+                rules = mOtherLangRules;
+            }
+            for (Rule rule : rules) {
+                str = rule.apply(str);
+            }
+            return str;
+        }
+    }
+
+    private final Map<String, List<Rule>> mKeyRules = new HashMap<String, List<Rule>>();
+    private final List<Rule> mPatternRules = new ArrayList<Rule>();
+    /**
+     * Order of all rules, rules of keys are merged in this order.
+     */
+    private final List<Rule> mRules = new ArrayList<Rule>();
+    /**
+     * Transformations by their rules, keys with the same rules share the transformation.
+     */
+    private final Map<List<Rule>, Transformation> mTransformations = new ConcurrentHashMap<List<Rule>, Transformation>();
+
+    /**
+     * @param selector  key, glob or regular expression prefixed with {@code regex:}
+     * @param regex     regular expression replaced in the string
+     * @param languages comma separated list of languages the rule is applied for, {@code null} for all languages
+     */
+    public void add(String selector, String regex, String replacement, String languages) {
+        Set<String> languageSet = null;
+        if (languages != null) {
+            languageSet = new HashSet<String>(Arrays.asList(languages.split(",")));
+        }
+        Pattern keyPattern = null;
+        if (selector.startsWith(REGEX_PREFIX)) {
+            keyPattern = Pattern.compile(selector.substring(REGEX_PREFIX.length()));
+        } else if (selector.indexOf('*') != -1 || selector.indexOf('?') != -1) {
+            keyPattern = globToPattern(selector);
+        }
+        Rule rule = new Rule(keyPattern, regex, replacement, languageSet);
+        mRules.add(rule);
+        if (keyPattern != null) {
+            mPatternRules.add(rule);
+            return;
+        }
+        List<Rule> keyRules = mKeyRules.get(selector);
+        if (keyRules == null) {
+            keyRules = new ArrayList<Rule>(1);
+            mKeyRules.put(selector, keyRules);
+        }
+        keyRules.add(rule);
+    }
+
+    public boolean isEmpty() {
+        return mRules.isEmpty();
+    }
+
+    /**
+     * @return transformation of the key or {@code null} if there's no rule for the key
+     */
+    public Transformation forKey(String key) {
+        List<Rule> keyRules = mKeyRules.get(key);
+        List<Rule> patternRules = null;
+        for (Rule rule : mPatternRules) {
+            if (rule.keyPattern.matcher(key).matches()) {
+                if (patternRules == null) {
+                    patternRules = new ArrayList<Rule>();
+                }
+                patternRules.add(rule);
+            }
+        }
+
+        List<Rule> rules;
+        if (patternRules == null) {
+            if (keyRules == null) {
+                return null;
+            }
+            rules = keyRules;
+        } else if (keyRules == null) {
+            rules = patternRules;
+        } else {
+            // both kinds of rules, keep the order they were added
+            rules = new ArrayList<Rule>(keyRules.size() + patternRules.size());
+            for (Rule rule : mRules) {
+                if (keyRules.contains(rule) || patternRules.contains(rule)) {
+                    rules.add(rule);
+                }
+            }
+        }
+
+        Transformation transformation = mTransformations.get(rules);
+        if (transformation == null) {
+            transformation = new Transformation(rules);
+            mTransformations.put(rules, transformation);
+        }
+        return transformation;
+    }
+
+    private static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(glob.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(start)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
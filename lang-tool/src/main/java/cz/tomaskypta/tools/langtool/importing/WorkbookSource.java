@@ -0,0 +1,70 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Import source reading the first sheet of a workbook fully loaded in memory. Used for xls files.
+ */
+public class WorkbookSource implements ImportSource {
+
+    private final Workbook mWorkbook;
+    private final Sheet mSheet;
+    /**
+     * Formats cells as displayed, the same as {@link XlsxEventSource}, e.g. {@code 2024} instead of {@code 2024.0}.
+     */
+    private final DataFormatter mFormatter = new DataFormatter();
+
+    public WorkbookSource(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            mWorkbook = WorkbookFactory.create(in);
+        } finally {
+            in.close();
+        }
+        mSheet = mWorkbook.getSheetAt(0);
+        // like the cached results read by XlsxEventSource, instead of the formulas
+        mFormatter.setUseCachedValuesForFormulaCells(true);
+    }
+
+    @Override
+    public String getSheetName() {
+        return mSheet.getSheetName();
+    }
+
+    @Override
+    public void readRows(RowHandler handler) throws IOException {
+        Iterator<Row> iterator = mSheet.rowIterator();
+        while (iterator.hasNext()) {
+            Row row = iterator.next();
+            if (!handler.onRow(row.getRowNum(), toCells(row))) {
+                return;
+            }
+        }
+    }
+
+    private String[] toCells(Row row) {
+        String[] cells = new String[Math.max(row.getLastCellNum(), 0)];
+        for (int i = 0; i < cells.length; i++) {
+            Cell cell = row.getCell(i);
+            if (cell != null) {
+                cells[i] = mFormatter.formatCellValue(cell);
+            }
+        }
+        return cells;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mWorkbook.close();
+    }
+}
@@ -0,0 +1,264 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import cz.tomaskypta.tools.langtool.util.LanguageTags;
+
+/**
+ * Import source streaming the first file element of XLIFF 2.0 document with StAX parser, e.g. a file written by
+ * export. Rows have the same cells as the exported sheet: the key from the name of the unit, the default value from
+ * its source and the value of the target language from its target.
+ * <p>
+ * Groups are read as plurals and notes as comments. Text of all segments of a unit is joined, inline codes are read
+ * as their text. Sheet name is the original of the file.
+ */
+public class XliffSource implements ImportSource {
+
+    private static final String NAMESPACE = "urn:oasis:names:tc:xliff:document:2.0";
+    /**
+     * Factories are not thread-safe, every thread reading sources has its own.
+     */
+    private static final ThreadLocal<XMLInputFactory> factory = ThreadLocal.withInitial(() -> {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return inputFactory;
+    });
+
+    private final File mFile;
+    private final XMLInputFactory mFactory;
+    private final String[] mTitleCells;
+    private final String mSheetName;
+
+    public XliffSource(File file) throws IOException {
+        mFile = file;
+        mFactory = factory.get();
+
+        String targetLanguage = null;
+        String original = null;
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            XMLStreamReader reader = mFactory.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                if (!"xliff".equals(reader.getLocalName()) || !NAMESPACE.equals(reader.getNamespaceURI())) {
+                    throw new IOException(file + " is not XLIFF 2.0 file");
+                }
+                targetLanguage = reader.getAttributeValue(null, "trgLang");
+                if (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    original = reader.getAttributeValue(null, "original");
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read " + file, e);
+        } finally {
+            in.close();
+        }
+
+        if (targetLanguage == null) {
+            mTitleCells = new String[]{"KEY", "default"};
+        } else {
+            mTitleCells = new String[]{"KEY", "default", LanguageTags.toQualifier(targetLanguage)};
+        }
+        if (original == null || original.isEmpty()) {
+            String name = file.getName();
+            original = name.substring(0, name.lastIndexOf('.'));
+        }
+        mSheetName = original;
+    }
+
+    @Override
+    public String getSheetName() {
+        return mSheetName;
+    }
+
+    @Override
+    public void readRows(RowHandler handler) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(mFile));
+        try {
+            XMLStreamReader reader = mFactory.createXMLStreamReader(in);
+            try {
+                new DocumentReader(reader, handler).read();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read " + mFile, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        // the file is opened only while reading rows
+    }
+
+    /**
+     * Reads units of a single document and passes them to the row handler.
+     */
+    private class DocumentReader {
+
+        private final XMLStreamReader mReader;
+        private final RowHandler mHandler;
+        private final StringBuilder mSource = new StringBuilder();
+        private final StringBuilder mTarget = new StringBuilder();
+        private int mRowNum;
+        private boolean mStopped;
+
+        DocumentReader(XMLStreamReader reader, RowHandler handler) {
+            mReader = reader;
+            mHandler = handler;
+        }
+
+        void read() throws XMLStreamException, IOException {
+            onRow(mTitleCells);
+            // the root element and the first file
+            mReader.nextTag();
+            if (mReader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                return;
+            }
+            // notes of the file are comments at the end
+            List<String> fileNotes = new ArrayList<String>();
+            while (!mStopped && mReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String element = mReader.getLocalName();
+                if ("notes".equals(element)) {
+                    readNotes(fileNotes);
+                } else if ("unit".equals(element)) {
+                    readUnit();
+                } else if ("group".equals(element)) {
+                    readGroup();
+                } else {
+                    skipElement();
+                }
+            }
+            onComments(fileNotes);
+        }
+
+        /**
+         * Reads group as plurals, units of nested groups are read as its items.
+         */
+        private void readGroup() throws XMLStreamException, IOException {
+            String name = getName();
+            List<String> notes = new ArrayList<String>();
+            boolean started = false;
+            while (!mStopped && mReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String element = mReader.getLocalName();
+                if ("notes".equals(element) && !started) {
+                    readNotes(notes);
+                    continue;
+                }
+                if (!started) {
+                    onComments(notes);
+                    onRow(new String[]{"//plurals: " + name});
+                    started = true;
+                }
+                if ("unit".equals(element)) {
+                    readUnit();
+                } else if ("group".equals(element)) {
+                    readGroup();
+                } else {
+                    skipElement();
+                }
+            }
+            if (!started) {
+                onComments(notes);
+            }
+        }
+
+        private void readUnit() throws XMLStreamException, IOException {
+            String key = getName();
+            mSource.setLength(0);
+            mTarget.setLength(0);
+            boolean target = false;
+            while (mReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String element = mReader.getLocalName();
+                if ("notes".equals(element)) {
+                    List<String> notes = new ArrayList<String>();
+                    readNotes(notes);
+                    onComments(notes);
+                } else if ("segment".equals(element) || "ignorable".equals(element)) {
+                    int sourceStart = mSource.length();
+                    boolean partTarget = false;
+                    while (mReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        if ("source".equals(mReader.getLocalName())) {
+                            readText(mSource);
+                        } else if ("target".equals(mReader.getLocalName())) {
+                            readText(mTarget);
+                            partTarget = true;
+                        } else {
+                            skipElement();
+                        }
+                    }
+                    target |= partTarget;
+                    if (!partTarget && "ignorable".equals(element)) {
+                        // ignorable content is the same in the target
+                        mTarget.append(mSource, sourceStart, mSource.length());
+                    }
+                } else {
+                    skipElement();
+                }
+            }
+            onRow(new String[]{key, mSource.toString(), target ? mTarget.toString() : null});
+        }
+
+        private void readNotes(List<String> notes) throws XMLStreamException {
+            while (mReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                StringBuilder note = new StringBuilder();
+                readText(note);
+                notes.add(note.toString());
+            }
+        }
+
+        /**
+         * Appends text of the current element including text of nested elements, ends at its end tag.
+         */
+        private void readText(StringBuilder text) throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = mReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                    text.append(mReader.getTextCharacters(), mReader.getTextStart(), mReader.getTextLength());
+                }
+            }
+        }
+
+        private void skipElement() throws XMLStreamException {
+            readText(new StringBuilder());
+        }
+
+        private String getName() {
+            String name = mReader.getAttributeValue(null, "name");
+            return name != null ? name : mReader.getAttributeValue(null, "id");
+        }
+
+        private void onComments(List<String> notes) throws IOException {
+            for (String note : notes) {
+                onRow(new String[]{"/** " + note + " **/"});
+            }
+        }
+
+        private void onRow(String[] cells) throws IOException {
+            if (!mStopped && !mHandler.onRow(mRowNum++, cells)) {
+                mStopped = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Import source streaming the first sheet of a xlsx file with SAX parser. Rows are passed to the handler as they are
+ * parsed, the sheet is never loaded into memory.
+ */
+public class XlsxEventSource implements ImportSource {
+
+    /**
+     * Thrown from the sheet handler to stop parsing when the row handler doesn't want more rows.
+     */
+    private static class StopReading extends RuntimeException {
+        StopReading() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final OPCPackage mPackage;
+    private final ReadOnlySharedStringsTable mStrings;
+    private final StylesTable mStyles;
+    private final String mSheetName;
+
+    public XlsxEventSource(File file) throws IOException {
+        try {
+            mPackage = OPCPackage.open(file, PackageAccess.READ);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Cannot open " + file, e);
+        }
+        try {
+            mStrings = new ReadOnlySharedStringsTable(mPackage);
+            XSSFReader reader = new XSSFReader(mPackage);
+            mStyles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            sheets.next().close();
+            mSheetName = sheets.getSheetName();
+        } catch (SAXException | OpenXML4JException | IOException e) {
+            mPackage.revert();
+            throw new IOException("Cannot read " + file, e);
+        }
+    }
+
+    @Override
+    public String getSheetName() {
+        return mSheetName;
+    }
+
+    @Override
+    public void readRows(final RowHandler handler) throws IOException {
+        InputStream sheet = null;
+        try {
+            sheet = new XSSFReader(mPackage).getSheetsData().next();
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new XSSFSheetXMLHandler(mStyles, mStrings, new RowCollector(handler),
+                new DataFormatter(), false));
+            parser.parse(new InputSource(sheet));
+        } catch (StopReading e) {
+            // row handler is done
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (SAXException | ParserConfigurationException | OpenXML4JException e) {
+            throw new IOException("Cannot read sheet " + mSheetName, e);
+        } finally {
+            if (sheet != null) {
+                sheet.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        mPackage.revert();
+    }
+
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler mHandler;
+        private final List<String> mCells = new ArrayList<String>();
+
+        RowCollector(RowHandler handler) {
+            mHandler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            mCells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            boolean next;
+            try {
+                next = mHandler.onRow(rowNum, mCells.toArray(new String[0]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!next) {
+                throw new StopReading();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference == null ? mCells.size() : new CellReference(cellReference).getCol();
+            while (mCells.size() <= column) {
+                mCells.add(null);
+            }
+            mCells.set(column, formattedValue);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import cz.tomaskypta.tools.langtool.importing.ImportConfig;
 public class SplittingConfig extends ImportConfig {
 
     public String splittingConfigFile;
+    public boolean writeIntermediate;
 
 
     public SplittingConfig() {
@@ -17,10 +18,12 @@ public class SplittingConfig extends ImportConfig {
     public SplittingConfig(SplittingConfig other) {
         super(other);
         this.splittingConfigFile = other.splittingConfigFile;
+        this.writeIntermediate = other.writeIntermediate;
     }
 
     public SplittingConfig(CommandlineArguments args) {
         super(args);
         this.splittingConfigFile = args.getSplittingConfigFile();
+        this.writeIntermediate = args.isKeepIntermediate();
     }
 }
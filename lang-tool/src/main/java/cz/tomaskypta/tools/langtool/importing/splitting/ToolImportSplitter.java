@@ -1,18 +1,30 @@
 package cz.tomaskypta.tools.langtool.importing.splitting;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
+import cz.tomaskypta.tools.langtool.RunReport;
 import cz.tomaskypta.tools.langtool.importing.ImportConfig;
+import cz.tomaskypta.tools.langtool.importing.ImportSource;
+import cz.tomaskypta.tools.langtool.importing.RowRangeSource;
 import cz.tomaskypta.tools.langtool.importing.ToolImport;
+import cz.tomaskypta.tools.langtool.util.ConfigSheets;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
 
@@ -21,9 +33,19 @@ import org.apache.poi.ss.usermodel.*;
  */
 public class ToolImportSplitter {
 
+    private static final String PHASE_READ_INPUT = "read input";
+    private static final String PHASE_WRITE_INTERMEDIATE = "write intermediate";
+
     private TreeMap<Integer, String> mSplittingMap;
     private HashMap<String, String> mOutputFileNames;
     private File mIntermediateXlsDir;
+    private String mSheetName;
+    private String[] mTitleCells;
+    /**
+     * Cells of all rows of the input file by row index, {@code null} for missing rows.
+     */
+    private List<String[]> mRows;
+    private final RunReport mReport = new RunReport("split");
 
     public static void run(SplittingConfig config) throws IOException,
         ParserConfigurationException, TransformerException {
@@ -43,50 +65,153 @@ public class ToolImportSplitter {
             return;
         }
 
-        Workbook wb = WorkbookFactory.create(new FileInputStream(new File(config.inputFile)));
-        Sheet sheet = wb.getSheetAt(0);
-
-        Workbook wbConfig = WorkbookFactory.create(new FileInputStream(new File(config.splittingConfigFile)));
-        Sheet sheetConfig = wbConfig.getSheetAt(0);
-
         ToolImportSplitter tool = new ToolImportSplitter();
-        tool.mIntermediateXlsDir = new File("intermediate");
-        tool.mIntermediateXlsDir.mkdirs();
-
-        tool.prepareSplittingMap(sheetConfig);
-        tool.split(sheet);
-
-        for (String file : tool.mSplittingMap.values()) {
-            File outputFile = new File(tool.mIntermediateXlsDir, file);
-            System.out.println("Importing file: " + file);
+        tool.prepareSplittingMap(ConfigSheets.read(config.splittingConfigFile));
+
+        long start = System.nanoTime();
+        File inputFile = new File(config.inputFile);
+        ImportSource source = ImportSource.open(inputFile);
+        try {
+            tool.mReport.addBytesRead(inputFile.length());
+            tool.readRows(source);
+        } finally {
+            source.close();
+        }
+        tool.mReport.addPhaseTime(PHASE_READ_INPUT, start);
+
+        if (config.writeIntermediate) {
+            start = System.nanoTime();
+            tool.mIntermediateXlsDir = new File(config.workingDir, "intermediate");
+            tool.mIntermediateXlsDir.mkdirs();
+            tool.split();
+            tool.mReport.addPhaseTime(PHASE_WRITE_INTERMEDIATE, start);
+        }
 
-            ImportConfig partConfig = new ImportConfig(config);
-            partConfig.inputFile = outputFile.getPath();
-            partConfig.outputDirName = outputFile.getName().substring(0, outputFile.getName().indexOf('.'));
-            partConfig.outputFileName = tool.mOutputFileNames.get(file);
-            ToolImport.run(partConfig);
+        tool.importParts(config);
+        tool.mReport.finish();
+        tool.mReport.printSummary(System.out);
+        if (!StringUtils.isEmpty(config.reportFile)) {
+            tool.mReport.write(new File(config.reportFile));
         }
     }
 
-    private void prepareSplittingMap(Sheet sheetConfig) throws IOException, TransformerException {
+    private void prepareSplittingMap(List<String[]> configRows) {
         mSplittingMap = new TreeMap<Integer, String>();
         mOutputFileNames = new HashMap<String, String>();
-        Iterator<Row> it = sheetConfig.rowIterator();
-        while (it.hasNext()) {
-            Row row = it.next();
-            if (row == null || row.getCell(0) == null || row.getCell(1) == null) {
+        for (String[] row : configRows) {
+            String start = ConfigSheets.cell(row, 0);
+            String splitName = ConfigSheets.cell(row, 1);
+            if (start == null || splitName == null) {
                 return;
             }
-            String splitName = row.getCell(1).getStringCellValue();
-            mSplittingMap.put((int)row.getCell(0).getNumericCellValue(), splitName);
-            if (row.getCell(2) != null) {
-                mOutputFileNames.put(splitName, row.getCell(2).getStringCellValue());
+            mSplittingMap.put((int) Double.parseDouble(start), splitName);
+            String outputFileName = ConfigSheets.cell(row, 2);
+            if (outputFileName != null) {
+                mOutputFileNames.put(splitName, outputFileName);
             }
         }
     }
 
-    private void split(Sheet inSheet) throws IOException, TransformerException {
-        Row inTitleRow = inSheet.getRow(0);
+    private void readRows(ImportSource source) throws IOException {
+        mSheetName = source.getSheetName();
+        mRows = new ArrayList<String[]>();
+        source.readRows(new ImportSource.RowHandler() {
+            @Override
+            public boolean onRow(int rowNum, String[] cells) {
+                while (mRows.size() <= rowNum) {
+                    mRows.add(null);
+                }
+                mRows.set(rowNum, cells);
+                return true;
+            }
+        });
+        mTitleCells = mRows.isEmpty() || mRows.get(0) == null ? new String[0] : mRows.get(0);
+    }
+
+    /**
+     * @return view of the rows of the part, without the title row
+     */
+    private List<String[]> getPartRows(Map.Entry<Integer, String> entry) {
+        // row numbers in the splitting config start from 1
+        int actFileStart = entry.getKey() - 1;
+        Integer nextFileStart = mSplittingMap.higherKey(entry.getKey());
+        int end = nextFileStart == null ? mRows.size() : nextFileStart - 1;
+        actFileStart = Math.max(1, Math.min(actFileStart, mRows.size()));
+        end = Math.max(actFileStart, Math.min(end, mRows.size()));
+        return mRows.subList(actFileStart, end);
+    }
+
+    /**
+     * Imports all parts, concurrently when importing with more threads. Messages of every part are printed together,
+     * in the order of the parts.
+     */
+    private void importParts(SplittingConfig config) throws IOException, ParserConfigurationException {
+        int parts = mSplittingMap.size();
+        ExecutorService executor = null;
+        if (config.threads > 1 && parts > 1) {
+            executor = Executors.newFixedThreadPool(Math.min(config.threads, parts));
+        }
+        try {
+            List<Future<String>> futures = new ArrayList<Future<String>>(parts);
+            for (final Map.Entry<Integer, String> entry : mSplittingMap.entrySet()) {
+                final ImportConfig partConfig = createPartConfig(config, entry.getValue());
+                // threads not used by parts are used for languages of the parts
+                partConfig.threads = Math.max(1, config.threads / parts);
+                final RowRangeSource source = new RowRangeSource(mSheetName, mTitleCells, getPartRows(entry));
+                if (executor == null) {
+                    System.out.println("Importing file: " + entry.getValue());
+                    ToolImport.run(System.out, partConfig, source, mReport);
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    PrintStream out = new PrintStream(buffer, true, Charset.defaultCharset().name());
+                    out.println("Importing file: " + entry.getValue());
+                    ToolImport.run(out, partConfig, source, mReport);
+                    return buffer.toString(Charset.defaultCharset().name());
+                }));
+            }
+            for (Future<String> future : futures) {
+                System.out.print(getPartOutput(future));
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static String getPartOutput(Future<String> future) throws IOException, ParserConfigurationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private ImportConfig createPartConfig(SplittingConfig config, String file) {
+        ImportConfig partConfig = new ImportConfig(config);
+        partConfig.inputFile = new File(mIntermediateXlsDir, file).getPath();
+        partConfig.outputDirName = file.substring(0, file.indexOf('.'));
+        partConfig.outputFileName = mOutputFileNames.get(file);
+        return partConfig;
+    }
+
+    /**
+     * Writes the parts into intermediate files, for checking the splitting config.
+     */
+    private void split() throws IOException {
         for (Map.Entry<Integer, String> entry : mSplittingMap.entrySet()) {
             System.out.println("Splitting into file: " + entry.getValue());
             File outputFile = new File(mIntermediateXlsDir, entry.getValue());
@@ -96,17 +221,17 @@ public class ToolImportSplitter {
                 fos = new FileOutputStream(outputFile);
 
                 Workbook wb = WorkbookFactory.create(outputFile.getName().endsWith("x"));
-                Sheet outSheet = wb.createSheet(inSheet.getSheetName());
-                copyTitleRow(inTitleRow, outSheet);
-
-                Integer actFileStart = entry.getKey();
-                Integer nextFileStart = mSplittingMap.higherKey(entry.getKey());
-                if (nextFileStart == null) {
-                    nextFileStart = inSheet.getLastRowNum() + 2;
+                Sheet outSheet = wb.createSheet(mSheetName);
+                copyRow(mTitleCells, outSheet.createRow(0));
+
+                int outRowIdx = 1;
+                for (String[] cells : getPartRows(entry)) {
+                    Row outRow = outSheet.createRow(outRowIdx++);
+                    if (cells != null) {
+                        copyRow(cells, outRow);
+                    }
                 }
 
-                copyRowRange(inSheet, outSheet, actFileStart, nextFileStart);
-
                 wb.write(fos);
             } finally {
                 if (fos != null) {
@@ -116,26 +241,12 @@ public class ToolImportSplitter {
         }
     }
 
-    private void copyTitleRow(Row inTitleRow, Sheet outSheet) {
-        Row outTitleRow = outSheet.createRow(0);
-        copyRow(inTitleRow, outTitleRow);
-    }
-
-    private void copyRowRange(Sheet inSheet, Sheet outSheet, int rowStart, int rowEnd) {
-        for (int rowIdx = rowStart, outRowIdx = 1; rowIdx < rowEnd; rowIdx++, outRowIdx++) {
-            Row outRow = outSheet.createRow(outRowIdx);
-            Row inRow = inSheet.getRow(rowIdx-1);
-            copyRow(inRow, outRow);
-        }
-    }
-
-    private void copyRow(Row inTitleRow, Row outRow) {
+    private void copyRow(String[] cells, Row outRow) {
         // TODO copy formatting
-        Iterator<Cell> it = inTitleRow.cellIterator();
-        while (it.hasNext()) {
-            Cell srcCell = it.next();
-            outRow.createCell(srcCell.getColumnIndex(), srcCell.getCellType());
-            outRow.getCell(srcCell.getColumnIndex()).setCellValue(srcCell.getStringCellValue());
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != null) {
+                outRow.createCell(i).setCellValue(cells[i]);
+            }
         }
     }
 }
@@ -0,0 +1,63 @@
+package cz.tomaskypta.tools.langtool.serving;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Standard output or error stream shared by jobs running concurrently. Everything printed by a job, including threads
+ * started by the job, is written into the buffer of the job, the rest is written into the original stream.
+ */
+class JobOutput extends OutputStream {
+
+    private final PrintStream mOriginal;
+    private final InheritableThreadLocal<ByteArrayOutputStream> mBuffer =
+        new InheritableThreadLocal<ByteArrayOutputStream>();
+
+    JobOutput(PrintStream original) {
+        mOriginal = original;
+    }
+
+    /**
+     * Writes output of the current thread and threads started by it into the buffer.
+     *
+     * @param buffer buffer of the job, {@code null} to write into the original stream again
+     */
+    void capture(ByteArrayOutputStream buffer) {
+        if (buffer == null) {
+            mBuffer.remove();
+        } else {
+            mBuffer.set(buffer);
+        }
+    }
+
+    PrintStream getOriginal() {
+        return mOriginal;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ByteArrayOutputStream buffer = mBuffer.get();
+        if (buffer == null) {
+            mOriginal.write(b);
+            return;
+        }
+        buffer.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ByteArrayOutputStream buffer = mBuffer.get();
+        if (buffer == null) {
+            mOriginal.write(b, off, len);
+            return;
+        }
+        buffer.write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+        mOriginal.flush();
+    }
+}
@@ -0,0 +1,92 @@
+package cz.tomaskypta.tools.langtool.serving;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import cz.tomaskypta.tools.langtool.CommandlineArguments;
+import cz.tomaskypta.tools.langtool.exporting.ExportConfig;
+import cz.tomaskypta.tools.langtool.exporting.ToolExport;
+import cz.tomaskypta.tools.langtool.importing.ToolImport;
+import cz.tomaskypta.tools.langtool.importing.splitting.SplittingConfig;
+import cz.tomaskypta.tools.langtool.importing.splitting.ToolImportSplitter;
+
+/**
+ * Export, import and split jobs given by command line args, run by the server and by batches.
+ */
+class Jobs {
+
+    static final String EXPORT = "export";
+    static final String IMPORT = "import";
+    static final String SPLIT = "split";
+
+    private static final Set<String> PATH_OPTIONS = new HashSet<String>(Arrays.asList("-e", "-o", "-i", "-m", "-s",
+        "--escaping-config", "--ignore-list", "--extra-transformations", "--mixed-content", "--report", "--cache"));
+
+    private Jobs() {
+    }
+
+    /**
+     * Resolves values of options with file paths against the directory of the job.
+     */
+    static String[] resolvePaths(File dir, String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (PATH_OPTIONS.contains(args[i])) {
+                File path = new File(args[++i]);
+                if (!path.isAbsolute()) {
+                    args[i] = new File(dir, args[i]).getPath();
+                }
+            }
+        }
+        return args;
+    }
+
+    /**
+     * @return command of the args, the same as chosen by the command line tool, {@code null} for none
+     */
+    static String getCommand(CommandlineArguments args) {
+        if (args.getExportProject() != null) {
+            return EXPORT;
+        } else if (args.getImportFile() != null) {
+            return args.getSplittingConfigFile() != null ? SPLIT : IMPORT;
+        }
+        return null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the args are not valid for the command
+     */
+    static void check(String command, CommandlineArguments args) {
+        if (EXPORT.equals(command)) {
+            if (args.getExportProject() == null) {
+                throw new IllegalArgumentException("Export needs project dir, -e");
+            }
+        } else if (args.getImportFile() == null) {
+            throw new IllegalArgumentException("Import needs input file, -i");
+        } else if (SPLIT.equals(command) && args.getSplittingConfigFile() == null) {
+            throw new IllegalArgumentException("Split needs splitting config, -s");
+        } else if (IMPORT.equals(command) && args.getSplittingConfigFile() != null) {
+            throw new IllegalArgumentException("Import with splitting config has to be run as split");
+        }
+    }
+
+    /**
+     * Runs the job, default output files are written into the directory.
+     */
+    static void run(String command, CommandlineArguments args, File dir) throws Exception {
+        if (EXPORT.equals(command)) {
+            ExportConfig config = new ExportConfig(args);
+            config.workingDir = dir;
+            ToolExport.run(config);
+        } else if (SPLIT.equals(command)) {
+            SplittingConfig config = new SplittingConfig(args);
+            config.workingDir = dir;
+            ToolImportSplitter.run(config);
+        } else {
+            SplittingConfig config = new SplittingConfig(args);
+            config.workingDir = dir;
+            ToolImport.run(config);
+        }
+    }
+}
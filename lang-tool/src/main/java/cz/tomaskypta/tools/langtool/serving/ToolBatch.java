@@ -0,0 +1,281 @@
+package cz.tomaskypta.tools.langtool.serving;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import cz.tomaskypta.tools.langtool.CommandlineArguments;
+import cz.tomaskypta.tools.langtool.RunReport;
+import cz.tomaskypta.tools.langtool.util.Json;
+
+/**
+ * Runs export, import and split jobs of a manifest file in a single process, so that classes, resource parsers and
+ * configuration files are loaded only once for all jobs.
+ * <p>
+ * Every line of the manifest is a job with the same args as the command line tool, e.g.
+ * {@code -e app -o app.xlsx --ignore-list ignored.xlsx}. Args containing spaces are quoted, empty lines and lines
+ * starting with {@code #} are skipped. Relative paths and default output files are resolved against the directory of
+ * the manifest.
+ * <p>
+ * Jobs run concurrently on the given number of threads. Output of every job is printed together, in the order of the
+ * manifest, followed by the status of all jobs. Export jobs have to name their output file, default names of
+ * concurrent jobs could be the same. Reports of the jobs don't contain peak heap, only the batch reports peak heap of
+ * all jobs.
+ */
+public class ToolBatch {
+
+    private static class Job {
+        final int line;
+        final String text;
+        final CommandlineArguments args = new CommandlineArguments();
+        String command;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Throwable failure;
+        long timeMs;
+
+        Job(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    private final File mDir;
+    private final List<Job> mJobs = new ArrayList<Job>();
+    private JobOutput mOut;
+    private JobOutput mErr;
+
+    private ToolBatch(File dir) {
+        mDir = dir;
+    }
+
+    /**
+     * Runs all jobs of the manifest. No job is run when some line of the manifest is not valid.
+     *
+     * @param threads    number of jobs running concurrently, 0 uses all available processors
+     * @param reportFile JSON file with status of all jobs, can be {@code null}
+     * @return {@code true} if all jobs succeeded
+     */
+    public static boolean run(String manifestFile, int threads, String reportFile) throws IOException {
+        File manifest = new File(manifestFile).getAbsoluteFile();
+        ToolBatch batch = new ToolBatch(manifest.getParentFile());
+        if (!batch.readManifest(manifest)) {
+            return false;
+        }
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+
+        long start = System.nanoTime();
+        long peakHeap;
+        RunReport.resetPeakHeap();
+        RunReport.setSharedHeap(true);
+        try {
+            batch.runJobs(threads);
+            peakHeap = RunReport.getPeakHeap();
+        } finally {
+            RunReport.setSharedHeap(false);
+        }
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        int failed = 0;
+        for (Job job : batch.mJobs) {
+            if (job.failure != null) {
+                failed++;
+            }
+        }
+        System.out.println();
+        System.out.println(String.format("Batch finished in %d ms: %d jobs, %d failed, peak heap %d MB", time,
+            batch.mJobs.size(), failed, peakHeap / (1024 * 1024)));
+        for (Job job : batch.mJobs) {
+            System.out.println(String.format("\t%s line %d: %s %s in %d ms", job.failure == null ? "ok" : "FAILED",
+                job.line, job.command, job.text, job.timeMs));
+        }
+        if (reportFile != null) {
+            batch.writeReport(new File(reportFile), time, peakHeap);
+        }
+        return failed == 0;
+    }
+
+    /**
+     * @return {@code false} if some line is not valid
+     */
+    private boolean readManifest(File manifest) throws IOException {
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        boolean valid = true;
+        for (int i = 0; i < lines.size(); i++) {
+            String text = lines.get(i).trim();
+            if (text.isEmpty() || text.startsWith("#")) {
+                continue;
+            }
+            Job job = new Job(i + 1, text);
+            try {
+                JCommander.newBuilder().addObject(job.args).build().parse(Jobs.resolvePaths(mDir, splitArgs(text)));
+                job.command = Jobs.getCommand(job.args);
+                if (job.command == null) {
+                    throw new IllegalArgumentException("Missing project dir, -e, or input file, -i");
+                }
+                if (Jobs.EXPORT.equals(job.command) && job.args.getOutputFile() == null) {
+                    // default names of concurrent exports could be the same
+                    throw new IllegalArgumentException("Missing output file of export, -o");
+                }
+            } catch (IllegalArgumentException | ParameterException e) {
+                System.err.println(String.format("%s:%d: %s", manifest.getPath(), job.line, e.getMessage()));
+                valid = false;
+            }
+            mJobs.add(job);
+        }
+        return valid;
+    }
+
+    private void runJobs(int threads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, mJobs.size())));
+        mOut = new JobOutput(System.out);
+        mErr = new JobOutput(System.err);
+        System.setOut(new PrintStream(mOut, true, Charset.defaultCharset().name()));
+        System.setErr(new PrintStream(mErr, true, Charset.defaultCharset().name()));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(mJobs.size());
+            for (final Job job : mJobs) {
+                futures.add(executor.submit(() -> runJob(job)));
+            }
+            for (int i = 0; i < mJobs.size(); i++) {
+                await(futures.get(i));
+                printJob(mJobs.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+            System.setOut(mOut.getOriginal());
+            System.setErr(mErr.getOriginal());
+        }
+    }
+
+    private void runJob(Job job) {
+        long start = System.nanoTime();
+        mOut.capture(job.output);
+        mErr.capture(job.errors);
+        try {
+            Jobs.run(job.command, job.args, mDir);
+        } catch (Exception | LinkageError | AssertionError e) {
+            job.failure = e;
+        } finally {
+            mOut.capture(null);
+            mErr.capture(null);
+            job.timeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    private static void await(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch was interrupted");
+        } catch (ExecutionException e) {
+            // failures of jobs are kept in the jobs
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void printJob(Job job) throws IOException {
+        PrintStream out = mOut.getOriginal();
+        out.println();
+        out.println(String.format("Job on line %d: %s %s", job.line, job.command, job.text));
+        out.print(job.output.toString(Charset.defaultCharset().name()));
+        out.flush();
+        mErr.getOriginal().print(job.errors.toString(Charset.defaultCharset().name()));
+        if (job.failure != null) {
+            job.failure.printStackTrace(mErr.getOriginal());
+        }
+    }
+
+    private void writeReport(File file, long timeMs, long peakHeap) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            Json.Writer json = new Json.Writer(out).beginObject();
+            json.field("wallTimeMs", timeMs);
+            json.field("peakHeapBytes", peakHeap);
+            json.name("jobs").beginArray();
+            for (Job job : mJobs) {
+                json.beginInlineObject();
+                json.field("line", job.line);
+                json.field("command", job.command);
+                json.field("args", job.text);
+                json.field("status", job.failure == null ? "ok" : "failed");
+                json.field("timeMs", job.timeMs);
+                json.field("errors", job.errors.toString(Charset.defaultCharset().name()));
+                if (job.failure != null) {
+                    StringWriter trace = new StringWriter();
+                    job.failure.printStackTrace(new PrintWriter(trace));
+                    json.field("exception", trace.toString());
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Splits the line into args separated by whitespace, parts in single or double quotes are kept together.
+     */
+    private static String[] splitArgs(String line) {
+        List<String> args = new ArrayList<String>();
+        StringBuilder arg = null;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    arg.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                if (arg == null) {
+                    arg = new StringBuilder();
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (arg != null) {
+                    args.add(arg.toString());
+                    arg = null;
+                }
+            } else {
+                if (arg == null) {
+                    arg = new StringBuilder();
+                }
+                arg.append(c);
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (arg != null) {
+            args.add(arg.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+}
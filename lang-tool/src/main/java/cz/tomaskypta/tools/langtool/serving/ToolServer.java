@@ -0,0 +1,282 @@
+package cz.tomaskypta.tools.langtool.serving;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cz.tomaskypta.tools.langtool.CommandlineArguments;
+import cz.tomaskypta.tools.langtool.RunReport;
+import cz.tomaskypta.tools.langtool.util.Json;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Long running process accepting export, import and split jobs as JSON requests on a localhost HTTP port. Resource
+ * parsers, configuration files and loaded classes are kept warm between jobs.
+ * <p>
+ * Every job is a POST of {@code {"args": [...], "dir": "..."}} to {@code /export}, {@code /import} or
+ * {@code /split}, the args are the same as command line args. Relative paths and default output files are resolved
+ * against {@code dir}, the directory of the server by default. Jobs run one at a time and the response contains the
+ * printed output and errors of the job.
+ * <p>
+ * Every request has to send the token printed at startup in the {@value #TOKEN_HEADER} header, so that other local
+ * processes and web pages can't run jobs. Requests from browsers, which send the {@code Origin} header, and requests
+ * of other hosts than {@code localhost} or {@code 127.0.0.1}, e.g. by DNS rebinding, are rejected as well. Jobs have
+ * to be posted with the {@code application/json} content type.
+ */
+public class ToolServer {
+
+    public static final int DEFAULT_PORT = 8338;
+    public static final String TOKEN_HEADER = "X-Langtool-Token";
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final CountDownLatch mStopped = new CountDownLatch(1);
+    private final JobOutput mOut = new JobOutput(System.out);
+    private final JobOutput mErr = new JobOutput(System.err);
+    private final long mStart = System.nanoTime();
+    private final String mToken;
+    private int mJobs;
+    private int mFailedJobs;
+
+    private ToolServer(int port) throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/export", checked(exchange -> handleJob(exchange, Jobs.EXPORT)));
+        mServer.createContext("/import", checked(exchange -> handleJob(exchange, Jobs.IMPORT)));
+        mServer.createContext("/split", checked(exchange -> handleJob(exchange, Jobs.SPLIT)));
+        mServer.createContext("/status", checked(this::handleStatus));
+        mServer.createContext("/shutdown", checked(this::handleShutdown));
+        byte[] token = new byte[16];
+        new SecureRandom().nextBytes(token);
+        mToken = Hex.encodeHexString(token);
+    }
+
+    /**
+     * Serves jobs until a request of {@code /shutdown}.
+     */
+    public static void run(int port) throws IOException {
+        ToolServer server = new ToolServer(port);
+        System.setOut(new PrintStream(server.mOut, true, Charset.defaultCharset().name()));
+        System.setErr(new PrintStream(server.mErr, true, Charset.defaultCharset().name()));
+        try {
+            server.mServer.start();
+            server.mOut.getOriginal().println(String.format("Serving on http://%s:%d/",
+                InetAddress.getLoopbackAddress().getHostAddress(), server.mServer.getAddress().getPort()));
+            server.mOut.getOriginal().println(String.format("%s: %s", TOKEN_HEADER, server.mToken));
+            server.mStopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.mServer.stop(0);
+            server.mExecutor.shutdown();
+            System.setOut(server.mOut.getOriginal());
+            System.setErr(server.mErr.getOriginal());
+        }
+    }
+
+    private void handleJob(HttpExchange exchange, String command) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Jobs have to be posted");
+            return;
+        }
+        if (!isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+            sendError(exchange, 415, "Jobs have to be posted as application/json");
+            return;
+        }
+        File dir;
+        CommandlineArguments args = new CommandlineArguments();
+        try {
+            Map<?, ?> request = readRequest(exchange);
+            Object dirValue = request.get("dir");
+            dir = new File(dirValue instanceof String ? (String) dirValue : "").getAbsoluteFile();
+            String[] jobArgs = Jobs.resolvePaths(dir, getArgs(request.get("args")));
+            JCommander.newBuilder().addObject(args).build().parse(jobArgs);
+            Jobs.check(command, args);
+        } catch (IllegalArgumentException | ParameterException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Throwable failure = null;
+        long start = System.nanoTime();
+        // jobs run one at a time, the peak heap in the report is the peak of the job
+        RunReport.resetPeakHeap();
+        mOut.capture(output);
+        mErr.capture(errors);
+        try {
+            Jobs.run(command, args, dir);
+        } catch (Exception | LinkageError | AssertionError e) {
+            failure = e;
+        } finally {
+            mOut.capture(null);
+            mErr.capture(null);
+        }
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        mJobs++;
+        if (failure != null) {
+            mFailedJobs++;
+        }
+        mOut.getOriginal().println(String.format("%s in %s: %s in %d ms", command, dir,
+            failure == null ? "ok" : "failed", time));
+
+        StringBuilder response = new StringBuilder();
+        Json.Writer json = new Json.Writer(response).beginInlineObject();
+        json.field("command", command);
+        json.field("status", failure == null ? "ok" : "failed");
+        json.field("timeMs", time);
+        json.field("output", output.toString(Charset.defaultCharset().name()));
+        json.field("errors", errors.toString(Charset.defaultCharset().name()));
+        if (failure != null) {
+            StringWriter trace = new StringWriter();
+            failure.printStackTrace(new PrintWriter(trace));
+            json.field("exception", trace.toString());
+        }
+        json.endObject();
+        send(exchange, failure == null ? 200 : 500, response.append('\n'));
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        StringBuilder response = new StringBuilder();
+        Json.Writer json = new Json.Writer(response).beginInlineObject();
+        json.field("status", "ok");
+        json.field("uptimeMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mStart));
+        json.field("jobs", mJobs);
+        json.field("failedJobs", mFailedJobs);
+        Runtime runtime = Runtime.getRuntime();
+        json.field("heapBytes", runtime.totalMemory() - runtime.freeMemory());
+        json.endObject();
+        send(exchange, 200, response.append('\n'));
+    }
+
+    private void handleShutdown(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "Shutdown has to be posted");
+            return;
+        }
+        StringBuilder response = new StringBuilder();
+        new Json.Writer(response).beginInlineObject().field("status", "stopping").endObject();
+        send(exchange, 200, response.append('\n'));
+        mStopped.countDown();
+    }
+
+    /**
+     * @return handler rejecting requests without the token, requests of browsers and requests of other hosts
+     */
+    private HttpHandler checked(HttpHandler handler) {
+        return exchange -> {
+            String host = exchange.getRequestHeaders().getFirst("Host");
+            String token = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+            if (exchange.getRequestHeaders().containsKey("Origin")) {
+                sendError(exchange, 403, "Requests of browsers are not allowed");
+            } else if (!isLocalHost(host)) {
+                sendError(exchange, 403, "Host has to be localhost or 127.0.0.1");
+            } else if (token == null || !MessageDigest.isEqual(mToken.getBytes(StandardCharsets.US_ASCII),
+                token.getBytes(StandardCharsets.US_ASCII))) {
+                sendError(exchange, 403, "Missing or wrong " + TOKEN_HEADER + " header");
+            } else {
+                handler.handle(exchange);
+            }
+        };
+    }
+
+    private static boolean isLocalHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        int port = host.lastIndexOf(':');
+        String name = port == -1 ? host : host.substring(0, port);
+        return name.equalsIgnoreCase("localhost") || name.equals("127.0.0.1");
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int params = contentType.indexOf(';');
+        String type = params == -1 ? contentType : contentType.substring(0, params);
+        return type.trim().toLowerCase(Locale.ROOT).equals("application/json");
+    }
+
+    private static Map<?, ?> readRequest(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        String body;
+        try {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+        if (body.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing request body");
+        }
+        Object request = Json.parse(body);
+        if (!(request instanceof Map)) {
+            throw new IllegalArgumentException("Request has to be JSON object");
+        }
+        return (Map<?, ?>) request;
+    }
+
+    private static String[] getArgs(Object value) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Missing args array");
+        }
+        List<?> list = (List<?>) value;
+        String[] args = new String[list.size()];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = list.get(i);
+            if (arg instanceof Double && (Double) arg == Math.rint((Double) arg)) {
+                arg = ((Double) arg).longValue();
+            }
+            if (arg == null || arg instanceof List || arg instanceof Map) {
+                throw new IllegalArgumentException("Args have to be strings");
+            }
+            args[i] = arg.toString();
+        }
+        return args;
+    }
+
+    private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        StringBuilder response = new StringBuilder();
+        Json.Writer json = new Json.Writer(response).beginInlineObject();
+        json.field("status", "error");
+        json.field("errors", message == null ? "" : message);
+        json.endObject();
+        send(exchange, code, response.append('\n'));
+    }
+
+    private static void send(HttpExchange exchange, int code, CharSequence response) throws IOException {
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package cz.tomaskypta.tools.langtool.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Rows of the first sheet of configuration files, like escaping config or ignore list. Rows are cached until the file
+ * is modified, so that a long running process loads every configuration file only once.
+ */
+public class ConfigSheets {
+
+    private static class CachedSheet {
+        final long lastModified;
+        final long length;
+        final List<String[]> rows;
+
+        CachedSheet(long lastModified, long length, List<String[]> rows) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.rows = rows;
+        }
+    }
+
+    private static final Map<String, CachedSheet> cache = new ConcurrentHashMap<String, CachedSheet>();
+    /**
+     * Locks of the files, a file needed by more threads at once is loaded only once.
+     */
+    private static final Map<String, Object> locks = new ConcurrentHashMap<String, Object>();
+
+    private ConfigSheets() {
+    }
+
+    /**
+     * @return unmodifiable list of cell values of the rows, {@code null} for missing cells
+     */
+    public static List<String[]> read(String fileName) throws IOException {
+        File file = new File(fileName).getAbsoluteFile();
+        synchronized (locks.computeIfAbsent(file.getPath(), path -> new Object())) {
+            long lastModified = file.lastModified();
+            long length = file.length();
+            CachedSheet cached = cache.get(file.getPath());
+            if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+                return cached.rows;
+            }
+            List<String[]> rows = Collections.unmodifiableList(readRows(file));
+            cache.put(file.getPath(), new CachedSheet(lastModified, length, rows));
+            return rows;
+        }
+    }
+
+    private static List<String[]> readRows(File file) throws IOException {
+        List<String[]> rows = new ArrayList<String[]>();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            Workbook wb = WorkbookFactory.create(in);
+            try {
+                Sheet sheet = wb.getSheetAt(0);
+                Iterator<Row> it = sheet.rowIterator();
+                while (it.hasNext()) {
+                    Row row = it.next();
+                    String[] cells = new String[Math.max(row.getLastCellNum(), 0)];
+                    for (int i = 0; i < cells.length; i++) {
+                        Cell cell = row.getCell(i);
+                        if (cell != null) {
+                            cells[i] = cell.toString();
+                        }
+                    }
+                    rows.add(cells);
+                }
+            } finally {
+                wb.close();
+            }
+        } finally {
+            in.close();
+        }
+        return rows;
+    }
+
+    /**
+     * @return value of the cell or {@code null} if the cell does not exist
+     */
+    public static String cell(String[] cells, int column) {
+        return column < cells.length ? cells[column] : null;
+    }
+}
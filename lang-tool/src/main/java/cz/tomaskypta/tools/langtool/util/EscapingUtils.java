@@ -1,27 +1,72 @@
 package cz.tomaskypta.tools.langtool.util;
 
-import java.util.regex.Pattern;
-
 /**
  * Created by Tomáš Kypta on 02.10.14.
  */
 public class EscapingUtils {
 
-    private static final Pattern escapingPattern = Pattern.compile("([^\\\\]?)('|\")");
-    private static final String replacement = "$1\\\\$2";
+    private static final ThreadLocal<StringBuilder> builder = ThreadLocal.withInitial(StringBuilder::new);
 
     public static String escapeWithQuotes(String value) {
         return '"' + value + '"';
     }
 
+    /**
+     * Escapes quotes and apostrophes with backslash. A preceding backslash doesn't count as escaping, so {@code \'}
+     * becomes {@code \\'}. Of two adjacent quotes only the second one is escaped. Other chars, like {@code @},
+     * {@code ?}, {@code %} or new lines, are kept as they are.
+     *
+     * @return the same instance if there's nothing to escape
+     */
     public static String escapeWithBackslash(String value) {
-        return escapingPattern.matcher(value).replaceAll(replacement);
+        int first = indexOfQuote(value);
+        if (first == -1) {
+            return value;
+        }
+        StringBuilder sb = builder.get();
+        sb.setLength(0);
+        // the char before the first quote decides whether it's escaped
+        int i = Math.max(0, first - 1);
+        sb.append(value, 0, i);
+        int length = value.length();
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c != '\\' && i + 1 < length && isQuote(value.charAt(i + 1))) {
+                sb.append(c).append('\\').append(value.charAt(i + 1));
+                i += 2;
+            } else {
+                if (isQuote(c)) {
+                    sb.append('\\');
+                }
+                sb.append(c);
+                i++;
+            }
+        }
+        String escaped = sb.toString();
+        if (sb.capacity() > 64 * 1024) {
+            // don't keep buffers of exceptionally long values
+            builder.remove();
+        }
+        return escaped;
     }
 
     public static String unescapeQuotes(String value) {
-        if (value.startsWith("\\\"") && value.endsWith("\\\"")) {
+        if (value.length() >= 4 && value.startsWith("\\\"") && value.endsWith("\\\"")) {
             return value.substring(2, value.length() - 2);
         }
         return value;
     }
+
+    private static int indexOfQuote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (isQuote(value.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '\'' || c == '"';
+    }
 }
@@ -0,0 +1,367 @@
+package cz.tomaskypta.tools.langtool.util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser and writer, used for run reports, batch reports and requests and responses of the server.
+ * Objects are parsed into maps, arrays into lists, numbers into doubles.
+ */
+public class Json {
+
+    /**
+     * Writes JSON values one by one. Members of indented objects and arrays are written on separate lines indented
+     * by two spaces, members of inline ones on the same line separated by comma and space.
+     */
+    public static class Writer {
+
+        private static class Container {
+            final boolean inline;
+            boolean empty = true;
+
+            Container(boolean inline) {
+                this.inline = inline;
+            }
+        }
+
+        private final Appendable mOut;
+        private final Deque<Container> mContainers = new ArrayDeque<Container>();
+        private boolean mAfterName;
+
+        public Writer(Appendable out) {
+            mOut = out;
+        }
+
+        public Writer beginObject() throws IOException {
+            return begin('{', false);
+        }
+
+        public Writer beginInlineObject() throws IOException {
+            return begin('{', true);
+        }
+
+        public Writer beginArray() throws IOException {
+            return begin('[', false);
+        }
+
+        public Writer beginInlineArray() throws IOException {
+            return begin('[', true);
+        }
+
+        public Writer endObject() throws IOException {
+            return end('}');
+        }
+
+        public Writer endArray() throws IOException {
+            return end(']');
+        }
+
+        public Writer name(String name) throws IOException {
+            separate();
+            quote(mOut, name).append(": ");
+            mAfterName = true;
+            return this;
+        }
+
+        /**
+         * @param value string value, {@code null} is written as JSON null
+         */
+        public Writer value(String value) throws IOException {
+            separate();
+            if (value == null) {
+                mOut.append("null");
+            } else {
+                quote(mOut, value);
+            }
+            return this;
+        }
+
+        public Writer value(long value) throws IOException {
+            separate();
+            mOut.append(String.valueOf(value));
+            return this;
+        }
+
+        public Writer field(String name, String value) throws IOException {
+            return name(name).value(value);
+        }
+
+        public Writer field(String name, long value) throws IOException {
+            return name(name).value(value);
+        }
+
+        private Writer begin(char bracket, boolean inline) throws IOException {
+            separate();
+            mOut.append(bracket);
+            // members of containers in inline containers are inline as well
+            mContainers.push(new Container(inline || !mContainers.isEmpty() && mContainers.peek().inline));
+            return this;
+        }
+
+        private Writer end(char bracket) throws IOException {
+            Container container = mContainers.pop();
+            if (!container.inline && !container.empty) {
+                newLine(mContainers.size());
+            }
+            mOut.append(bracket);
+            return this;
+        }
+
+        /**
+         * Writes the separator before the next name or value of the current container.
+         */
+        private void separate() throws IOException {
+            if (mAfterName) {
+                mAfterName = false;
+                return;
+            }
+            Container container = mContainers.peek();
+            if (container == null) {
+                return;
+            }
+            if (!container.empty) {
+                mOut.append(',');
+            }
+            if (!container.inline) {
+                newLine(mContainers.size());
+            } else if (!container.empty) {
+                mOut.append(' ');
+            }
+            container.empty = false;
+        }
+
+        private void newLine(int depth) throws IOException {
+            mOut.append('\n');
+            for (int i = 0; i < depth; i++) {
+                mOut.append("  ");
+            }
+        }
+    }
+
+    private final String mText;
+    private int mIndex;
+
+    private Json(String text) {
+        mText = text;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.mIndex != text.length()) {
+            throw json.error("Unexpected content");
+        }
+        return value;
+    }
+
+    /**
+     * Appends the value as JSON string.
+     */
+    private static Appendable quote(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    out.append('\\').append(c);
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                    break;
+            }
+        }
+        return out.append('"');
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (mIndex == mText.length()) {
+            throw error("Unexpected end");
+        }
+        char c = mText.charAt(mIndex);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        mIndex++;
+        skipWhitespace();
+        if (peek() == '}') {
+            mIndex++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected name");
+            }
+            String name = readString();
+            skipWhitespace();
+            if (peek() != ':') {
+                throw error("Expected ':'");
+            }
+            mIndex++;
+            object.put(name, readValue());
+            skipWhitespace();
+            char c = peek();
+            mIndex++;
+            if (c == '}') {
+                return object;
+            } else if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<Object>();
+        mIndex++;
+        skipWhitespace();
+        if (peek() == ']') {
+            mIndex++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            char c = peek();
+            mIndex++;
+            if (c == ']') {
+                return array;
+            } else if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private String readString() {
+        StringBuilder value = new StringBuilder();
+        mIndex++;
+        while (true) {
+            if (mIndex >= mText.length()) {
+                throw error("Unterminated string");
+            }
+            char c = mText.charAt(mIndex++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (mIndex >= mText.length()) {
+                throw error("Unterminated string");
+            }
+            c = mText.charAt(mIndex++);
+            switch (c) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (mIndex + 4 > mText.length()) {
+                        throw error("Invalid escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(mText.substring(mIndex, mIndex + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape");
+                    }
+                    mIndex += 4;
+                    break;
+                default:
+                    value.append(c);
+                    break;
+            }
+        }
+    }
+
+    private Double readNumber() {
+        int start = mIndex;
+        while (mIndex < mText.length() && "+-0123456789.eE".indexOf(mText.charAt(mIndex)) != -1) {
+            mIndex++;
+        }
+        try {
+            return Double.valueOf(mText.substring(start, mIndex));
+        } catch (NumberFormatException e) {
+            mIndex = start;
+            throw error("Unexpected character");
+        }
+    }
+
+    private void expect(String literal) {
+        if (!mText.startsWith(literal, mIndex)) {
+            throw error("Unexpected character");
+        }
+        mIndex += literal.length();
+    }
+
+    private char peek() {
+        if (mIndex >= mText.length()) {
+            throw error("Unexpected end");
+        }
+        return mText.charAt(mIndex);
+    }
+
+    private void skipWhitespace() {
+        while (mIndex < mText.length() && Character.isWhitespace(mText.charAt(mIndex))) {
+            mIndex++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(String.format("%s at position %d of JSON", message, mIndex));
+    }
+}
@@ -0,0 +1,34 @@
+package cz.tomaskypta.tools.langtool.util;
+
+/**
+ * Conversion between language qualifiers of Android resource directories, e.g. {@code zh-rCN} or
+ * {@code b+sr+Latn}, and BCP 47 language tags used by translation tools, e.g. {@code zh-CN} or {@code sr-Latn}.
+ */
+public class LanguageTags {
+
+    private LanguageTags() {
+    }
+
+    public static String toLanguageTag(String qualifier) {
+        if (qualifier.startsWith("b+")) {
+            return qualifier.substring(2).replace('+', '-');
+        }
+        int region = qualifier.indexOf("-r");
+        if (region != -1) {
+            return qualifier.substring(0, region + 1) + qualifier.substring(region + 2);
+        }
+        return qualifier;
+    }
+
+    public static String toQualifier(String languageTag) {
+        String[] subtags = languageTag.split("-");
+        if (subtags.length == 1) {
+            return languageTag;
+        }
+        if (subtags.length == 2 && (subtags[1].length() == 2 || subtags[1].length() == 3 && Character.isDigit(
+            subtags[1].charAt(0)))) {
+            return subtags[0] + "-r" + subtags[1];
+        }
+        return "b+" + String.join("+", subtags);
+    }
+}
@@ -0,0 +1,40 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KeyDictionaryTest {
+
+    @Test
+    void idsSurviveGrowing() {
+        KeyDictionary keys = new KeyDictionary();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, keys.put("key" + i, i + 1));
+        }
+        // colliding hashes
+        assertEquals(1000, keys.put("Aa", 5));
+        assertEquals(1001, keys.put("BB", 6));
+
+        assertEquals(1002, keys.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, keys.getId("key" + i));
+            assertEquals("key" + i, keys.getKey(i));
+            assertEquals(i + 1, keys.getRow(i));
+        }
+        assertEquals(1000, keys.getId("Aa"));
+        assertEquals(1001, keys.getId("BB"));
+        assertEquals(-1, keys.getId("missing"));
+        assertEquals(1002, keys.all().cardinality());
+    }
+
+    @Test
+    void existingKeyIsMoved() {
+        KeyDictionary keys = new KeyDictionary();
+        keys.put("a", 1);
+        assertEquals(1, keys.put("b", 2));
+        assertEquals(1, keys.put("b", 7));
+        assertEquals(2, keys.size());
+        assertEquals(7, keys.getRow(1));
+    }
+}
@@ -0,0 +1,67 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceDirsTest {
+
+    @TempDir
+    Path mDir;
+
+    @Test
+    void sheetNamesDifferingInCaseAreMadeUnique() throws IOException {
+        createRes("App/src/main/res");
+        createRes("app/src/main/res");
+
+        Map<String, File> resDirs = ResourceDirs.find(mDir.toFile(), Collections.singleton("strings.xml"));
+
+        assertEquals(new ArrayList<String>(List.of("App-main", "app-main~2")),
+            new ArrayList<String>(resDirs.keySet()));
+        assertSheetsCanBeCreated(resDirs);
+    }
+
+    @Test
+    void uniqueLongSheetNamesFitTheLimit() throws IOException {
+        String module = "a_very_long_module_name_exceeding_the_limit";
+        createRes(module + "/src/main/res");
+        createRes(module.toUpperCase() + "/src/main/res");
+        createRes(module + "/src/Main/res");
+
+        Map<String, File> resDirs = ResourceDirs.find(mDir.toFile(), Collections.singleton("strings.xml"));
+
+        assertEquals(3, resDirs.size());
+        for (String name : resDirs.keySet()) {
+            assertTrue(name.length() <= 31, name);
+        }
+        assertSheetsCanBeCreated(resDirs);
+    }
+
+    private static void assertSheetsCanBeCreated(Map<String, File> resDirs) throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        try {
+            for (String name : resDirs.keySet()) {
+                wb.createSheet(name);
+            }
+        } finally {
+            wb.close();
+        }
+    }
+
+    private void createRes(String path) throws IOException {
+        File values = new File(mDir.toFile(), path + "/values");
+        values.mkdirs();
+        new File(values, "strings.xml").createNewFile();
+    }
+}
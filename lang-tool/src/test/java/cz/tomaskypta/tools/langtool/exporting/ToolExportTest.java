@@ -0,0 +1,189 @@
+package cz.tomaskypta.tools.langtool.exporting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import cz.tomaskypta.tools.langtool.RunReport;
+import cz.tomaskypta.tools.langtool.importing.ImportConfig;
+import cz.tomaskypta.tools.langtool.importing.ImportSource;
+import cz.tomaskypta.tools.langtool.importing.ToolImport;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbookFactory;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares workbooks exported by the in-memory and the streaming export, and resources imported back from all
+ * export formats.
+ */
+class ToolExportTest {
+
+    private static final String STRINGS = "<resources>\n"
+        + "    <!-- Main screen -->\n"
+        + "    <string name=\"app_name\">%s</string>\n"
+        + "    <plurals name=\"items\">\n"
+        + "        <item quantity=\"one\">%s item</item>\n"
+        + "        <item quantity=\"other\">%s items</item>\n"
+        + "    </plurals>\n"
+        + "</resources>\n";
+    private static final String ARRAYS = "<resources>\n"
+        + "    <string-array name=\"colors\">\n"
+        + "        <item>%s red</item>\n"
+        + "        <item>%s green</item>\n"
+        + "    </string-array>\n"
+        + "    <string name=\"extra\">%s extra</string>\n"
+        + "</resources>\n";
+
+    @TempDir
+    Path mDir;
+
+    @BeforeAll
+    static void registerProviders() {
+        WorkbookFactory.addProvider(new HSSFWorkbookFactory());
+        WorkbookFactory.addProvider(new XSSFWorkbookFactory());
+    }
+
+    @Test
+    void inMemoryAndStreamingExportOfMoreDefaultFilesAreSame() throws Exception {
+        File project = createProject();
+        List<String> inMemory = readCells(export(project, "memory.xlsx", false, false));
+        List<String> streaming = readCells(export(project, "streaming.xlsx", true, false));
+
+        assertEquals(streaming, inMemory);
+        // title and rows of both default files
+        assertEquals(1 + 5 + 3, inMemory.size());
+        assertEquals("KEY|default|cs|", inMemory.get(0));
+    }
+
+    @Test
+    void incrementalExportOfMoreDefaultFilesKeepsRows() throws Exception {
+        File project = createProject();
+        List<String> full = readCells(export(project, "full.xlsx", false, false));
+        File incremental = export(project, "incremental.xlsx", false, true);
+        write(new File(project, "res/values-cs/strings.xml"), STRINGS, "Aplikace", "CS %d", "CS %d");
+
+        List<String> updated = readCells(export(project, incremental.getName(), false, true));
+        List<String> expected = new ArrayList<String>(full);
+        expected.replaceAll(row -> row.replace("CS app", "Aplikace"));
+        assertEquals(expected, updated);
+    }
+
+    @Test
+    void allFormatsImportSameResources() throws Exception {
+        File project = createProject();
+        Map<String, String> expected = importFiles("memory", export(project, "memory.xlsx", false, false));
+        assertEquals(List.of("values-cs/strings.xml", "values/strings.xml"), new ArrayList<String>(expected.keySet()));
+
+        assertEquals(expected, importFiles("streaming", export(project, "streaming.xlsx", true, false)));
+        assertEquals(expected, importFiles("csv", export(project, "strings.csv", false, false)));
+        assertEquals(expected, importFiles("tsv", export(project, "strings.tsv", false, false)));
+        export(project, "strings.xlf", false, false);
+        File[] xliffFiles = mDir.toFile().listFiles((dir, name) -> name.endsWith(".xlf"));
+        assertEquals(1, xliffFiles.length);
+        assertEquals(expected, importFiles("xliff", xliffFiles));
+    }
+
+    private File createProject() throws IOException {
+        File project = new File(mDir.toFile(), "app");
+        write(new File(project, "res/values/strings.xml"), STRINGS, "App", "%d", "%d");
+        write(new File(project, "res/values/arrays.xml"), ARRAYS, "Default", "Default", "Default");
+        write(new File(project, "res/values-cs/strings.xml"), STRINGS, "CS app", "CS %d", "CS %d");
+        write(new File(project, "res/values-cs/arrays.xml"), ARRAYS, "CS", "CS", "CS");
+        // qualifier without any exported file, not a language
+        write(new File(project, "res/values-v21/styles.xml"), "<resources />\n");
+        return project;
+    }
+
+    private File export(File project, String fileName, boolean streaming, boolean incremental) throws Exception {
+        ExportConfig config = new ExportConfig();
+        config.inputExportProject = project.getPath();
+        config.outputFile = new File(mDir.toFile(), fileName).getPath();
+        config.additionalResources.add("arrays.xml");
+        config.streaming = streaming;
+        config.streamingWindowSize = 100;
+        config.incremental = incremental;
+        ToolExport.run(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"), config);
+        return new File(config.outputFile);
+    }
+
+    /**
+     * @return content of the imported resource files by their path relative to the res directory
+     */
+    private Map<String, String> importFiles(String dirName, File... files) throws Exception {
+        File dir = new File(mDir.toFile(), dirName);
+        for (File file : files) {
+            ImportConfig config = new ImportConfig();
+            config.inputFile = file.getPath();
+            config.workingDir = dir;
+            ImportSource source = ImportSource.open(file);
+            try {
+                ToolImport.run(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"), config, source,
+                    new RunReport("import"));
+            } finally {
+                source.close();
+            }
+        }
+        // named after the sheet, i.e. the project or the file name
+        File[] outDirs = new File(dir, "out").listFiles();
+        assertEquals(1, outDirs.length);
+        Path res = outDirs[0].toPath().resolve("res");
+        Map<String, String> contents = new TreeMap<String, String>();
+        try (Stream<Path> paths = Files.walk(res)) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                contents.put(res.relativize(path).toString(), new String(Files.readAllBytes(path),
+                    StandardCharsets.UTF_8));
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * @return values of cells of the project sheet, row by row
+     */
+    private static List<String> readCells(File file) throws IOException {
+        List<String> rows = new ArrayList<String>();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            Workbook wb = WorkbookFactory.create(in);
+            Sheet sheet = wb.getSheet("app");
+            for (int i = 0; i <= sheet.getLastRowNum(); i++) {
+                Row row = sheet.getRow(i);
+                StringBuilder cells = new StringBuilder();
+                for (int j = 0; row != null && j < row.getLastCellNum(); j++) {
+                    Cell cell = row.getCell(j);
+                    cells.append(cell == null ? "" : cell.toString()).append('|');
+                }
+                rows.add(cells.toString());
+            }
+            wb.close();
+        } finally {
+            in.close();
+        }
+        return rows;
+    }
+
+    private static void write(File file, String format, Object... args) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), String.format(format, args).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package cz.tomaskypta.tools.langtool.importing;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbookFactory;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbookFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that xls and xlsx sources read the same cells.
+ */
+class ImportSourceTest {
+
+    @TempDir
+    Path mDir;
+
+    @BeforeAll
+    static void registerProviders() {
+        WorkbookFactory.addProvider(new HSSFWorkbookFactory());
+        WorkbookFactory.addProvider(new XSSFWorkbookFactory());
+    }
+
+    @Test
+    void xlsAndXlsxCellsAreSame() throws IOException {
+        List<String> xls = readCells(write(new HSSFWorkbook(), "cells.xls"));
+        List<String> xlsx = readCells(write(new XSSFWorkbook(), "cells.xlsx"));
+
+        assertEquals(xlsx, xls);
+        assertEquals("[[KEY, default], [year, 2024, 1.5, TRUE, 3, text]]", xls.toString());
+    }
+
+    private File write(Workbook wb, String fileName) throws IOException {
+        File file = new File(mDir.toFile(), fileName);
+        try {
+            Row title = wb.createSheet("app").createRow(0);
+            title.createCell(0).setCellValue("KEY");
+            title.createCell(1).setCellValue("default");
+            Row row = wb.getSheet("app").createRow(1);
+            row.createCell(0).setCellValue("year");
+            row.createCell(1).setCellValue(2024);
+            row.createCell(2).setCellValue(1.5);
+            row.createCell(3).setCellValue(true);
+            row.createCell(4).setCellFormula("1+2");
+            row.getCell(4).setCellValue(3);
+            row.createCell(5).setCellValue("text");
+            OutputStream out = new FileOutputStream(file);
+            try {
+                wb.write(out);
+            } finally {
+                out.close();
+            }
+        } finally {
+            wb.close();
+        }
+        return file;
+    }
+
+    private static List<String> readCells(File file) throws IOException {
+        List<String> rows = new ArrayList<String>();
+        ImportSource source = ImportSource.open(file);
+        try {
+            source.readRows((rowNum, cells) -> rows.add(Arrays.toString(cells)));
+        } finally {
+            source.close();
+        }
+        return rows;
+    }
+}
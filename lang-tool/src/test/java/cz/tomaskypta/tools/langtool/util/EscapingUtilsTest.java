@@ -0,0 +1,90 @@
+package cz.tomaskypta.tools.langtool.util;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Compares {@link EscapingUtils#escapeWithBackslash(String)} with the regex it replaced.
+ */
+class EscapingUtilsTest {
+
+    private static final Pattern REGEX = Pattern.compile("([^\\\\]?)('|\")");
+    private static final String REPLACEMENT = "$1\\\\$2";
+
+    private static String escapeWithRegex(String value) {
+        return REGEX.matcher(value).replaceAll(REPLACEMENT);
+    }
+
+    private static void assertSameAsRegex(String value) {
+        assertEquals(escapeWithRegex(value), EscapingUtils.escapeWithBackslash(value), "escaping of " + value);
+    }
+
+    @Test
+    void emptyString() {
+        assertSameAsRegex("");
+        assertEquals("", EscapingUtils.escapeWithBackslash(""));
+    }
+
+    @Test
+    void valueWithoutQuotesIsNotCopied() {
+        String value = "Hello @user? 100% \n done";
+        assertSame(value, EscapingUtils.escapeWithBackslash(value));
+        assertSameAsRegex(value);
+    }
+
+    @Test
+    void leadingQuote() {
+        assertSameAsRegex("'quoted");
+        assertSameAsRegex("\"quoted\"");
+        assertEquals("\\'quoted", EscapingUtils.escapeWithBackslash("'quoted"));
+    }
+
+    @Test
+    void quoteAfterBackslash() {
+        assertSameAsRegex("\\'");
+        assertSameAsRegex("it\\'s");
+        assertEquals("\\\\'", EscapingUtils.escapeWithBackslash("\\'"));
+    }
+
+    @Test
+    void quoteAfterTwoBackslashes() {
+        assertSameAsRegex("\\\\'");
+        assertSameAsRegex("a\\\\\"b");
+        assertEquals("\\\\\\'", EscapingUtils.escapeWithBackslash("\\\\'"));
+    }
+
+    @Test
+    void alreadyEscapedValue() {
+        assertSameAsRegex("Don\\'t say \\\"hi\\\"");
+        assertSameAsRegex(EscapingUtils.escapeWithBackslash("Don't say \"hi\""));
+    }
+
+    @Test
+    void adjacentQuotes() {
+        assertSameAsRegex("''");
+        assertSameAsRegex("a''b");
+        assertSameAsRegex("\"'\"'");
+        assertSameAsRegex("'''");
+        assertEquals("'\\'", EscapingUtils.escapeWithBackslash("''"));
+    }
+
+    @Test
+    void randomValues() {
+        char[] chars = {'\'', '"', '\\', 'a', '@', '?', '%', '\n', ' ', '\uD83D', '\uDE00'};
+        Random random = new Random(42);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            value.setLength(0);
+            int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                value.append(chars[random.nextInt(chars.length)]);
+            }
+            assertSameAsRegex(value.toString());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cz.tomaskypta.tools.langtool.util;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonTest {
+
+    @Test
+    void indentedAndInlineContainers() throws IOException {
+        StringBuilder out = new StringBuilder();
+        Json.Writer json = new Json.Writer(out).beginObject();
+        json.field("name", "export");
+        json.name("empty").beginObject().endObject();
+        json.name("keys").beginInlineArray().value("a").value("b").endArray();
+        json.name("jobs").beginArray();
+        json.beginInlineObject().field("line", 1).field("args", null).endObject();
+        json.endArray();
+        json.endObject();
+
+        assertEquals("{\n"
+            + "  \"name\": \"export\",\n"
+            + "  \"empty\": {},\n"
+            + "  \"keys\": [\"a\", \"b\"],\n"
+            + "  \"jobs\": [\n"
+            + "    {\"line\": 1, \"args\": null}\n"
+            + "  ]\n"
+            + "}", out.toString());
+    }
+
+    @Test
+    void writtenStringsAreParsedBack() throws IOException {
+        String value = "quote \" backslash \\ tab \t new line \n control \u0001 unicode é";
+        StringBuilder out = new StringBuilder();
+        new Json.Writer(out).beginInlineObject().field("value", value).endObject();
+
+        assertEquals(Map.of("value", value), Json.parse(out.toString()));
+    }
+
+    @Test
+    void parse() {
+        assertEquals(Map.of("args", List.of("-e", 1.0, true)), Json.parse(" {\"args\": [\"-e\", 1, true]} "));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"args\": [}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{} x"));
+    }
+}